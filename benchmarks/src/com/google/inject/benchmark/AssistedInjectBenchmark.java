@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.FactoryModuleBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calling factories built by {@link FactoryModuleBuilder}. {@code plain} constructs a type with
+ * only {@literal @}Assisted values; {@code injector} and {@code assistedProvider} construct types
+ * that inject the {@link Injector} or an {@literal @}Assisted {@link Provider}, which need a child
+ * injector for every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssistedInjectBenchmark {
+
+  private PlainEvent.Factory plainFactory;
+  private InjectorEvent.Factory injectorFactory;
+  private ProviderEvent.Factory providerFactory;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        install(new FactoryModuleBuilder().build(PlainEvent.Factory.class));
+        install(new FactoryModuleBuilder().build(InjectorEvent.Factory.class));
+        install(new FactoryModuleBuilder().build(ProviderEvent.Factory.class));
+      }
+    });
+    plainFactory = injector.getInstance(PlainEvent.Factory.class);
+    injectorFactory = injector.getInstance(InjectorEvent.Factory.class);
+    providerFactory = injector.getInstance(ProviderEvent.Factory.class);
+  }
+
+  @Benchmark
+  public Object plain() {
+    return plainFactory.create("payload", 42);
+  }
+
+  @Benchmark
+  public Object injector() {
+    return injectorFactory.create("payload", 42);
+  }
+
+  @Benchmark
+  public Object assistedProvider() {
+    return providerFactory.create("payload", 42);
+  }
+
+  static class Clock {
+  }
+
+  static class PlainEvent {
+    interface Factory {
+      PlainEvent create(String payload, int sequence);
+    }
+
+    @Inject PlainEvent(Clock clock, @Assisted String payload, @Assisted int sequence) {}
+  }
+
+  static class InjectorEvent {
+    interface Factory {
+      InjectorEvent create(String payload, int sequence);
+    }
+
+    @Inject InjectorEvent(
+        Clock clock, Injector injector, @Assisted String payload, @Assisted int sequence) {}
+  }
+
+  static class ProviderEvent {
+    interface Factory {
+      ProviderEvent create(String payload, int sequence);
+    }
+
+    @Inject ProviderEvent(
+        Clock clock, @Assisted Provider<String> payload, @Assisted int sequence) {}
+  }
+}
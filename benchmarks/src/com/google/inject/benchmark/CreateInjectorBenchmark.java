@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Scopes;
+import com.google.inject.Stage;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Guice#createInjector} for a generated set of modules. Each module contributes
+ * {@link #BINDINGS_PER_MODULE} linked, singleton, constant and just-in-time bindings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateInjectorBenchmark {
+
+  static final int BINDINGS_PER_MODULE = 100;
+
+  @Param({"1000", "10000"})
+  private int bindingCount;
+
+  @Param({"DEVELOPMENT", "PRODUCTION"})
+  private Stage stage;
+
+  private List<Module> modules;
+
+  @Setup
+  public void setUp() {
+    ImmutableList.Builder<Module> builder = ImmutableList.builder();
+    for (int first = 0; first < bindingCount; first += BINDINGS_PER_MODULE) {
+      builder.add(new GeneratedModule(first, Math.min(first + BINDINGS_PER_MODULE, bindingCount)));
+    }
+    modules = builder.build();
+  }
+
+  @Benchmark
+  public Injector createInjector() {
+    return Guice.createInjector(stage, modules);
+  }
+
+  /** Binds keys {@code first} (inclusive) to {@code last} (exclusive), four kinds in turn. */
+  static class GeneratedModule extends AbstractModule {
+    private final int first;
+    private final int last;
+
+    GeneratedModule(int first, int last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    @Override protected void configure() {
+      for (int i = first; i < last; i++) {
+        Named name = Names.named("binding" + i);
+        switch (i % 4) {
+          case 0:
+            bind(Key.get(Service.class, name)).to(ServiceImpl.class);
+            break;
+          case 1:
+            bind(Key.get(Service.class, name)).to(ServiceImpl.class).in(Scopes.SINGLETON);
+            break;
+          case 2:
+            bindConstant().annotatedWith(name).to(i);
+            break;
+          default:
+            // depends on just-in-time bindings for Dependency and ServiceImpl
+            bind(Key.get(Client.class, name)).to(Client.class);
+            break;
+        }
+      }
+    }
+  }
+
+  public interface Service {}
+
+  public static class ServiceImpl implements Service {
+    @Inject ServiceImpl(Dependency dependency) {}
+  }
+
+  public static class Dependency {}
+
+  public static class Client {
+    @Inject ServiceImpl service;
+    @Inject Dependency dependency;
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Scopes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provisioning through {@link Injector#getInstance} and through providers obtained once from the
+ * injector, for unscoped, singleton and just-in-time bindings and a deep constructor graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetInstanceBenchmark {
+
+  private Injector injector;
+  private Provider<Unscoped> unscopedProvider;
+  private Provider<Singleton> singletonProvider;
+  private Provider<Root> rootProvider;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(Unscoped.class);
+        bind(Singleton.class).in(Scopes.SINGLETON);
+        bind(Root.class);
+      }
+    });
+    unscopedProvider = injector.getProvider(Unscoped.class);
+    singletonProvider = injector.getProvider(Singleton.class);
+    rootProvider = injector.getProvider(Root.class);
+  }
+
+  @Benchmark
+  public Unscoped getInstanceUnscoped() {
+    return injector.getInstance(Unscoped.class);
+  }
+
+  @Benchmark
+  public Singleton getInstanceSingleton() {
+    return injector.getInstance(Singleton.class);
+  }
+
+  @Benchmark
+  public JustInTime getInstanceJustInTime() {
+    return injector.getInstance(JustInTime.class);
+  }
+
+  @Benchmark
+  public Root getInstanceDeepGraph() {
+    return injector.getInstance(Root.class);
+  }
+
+  @Benchmark
+  public Unscoped providerGetUnscoped() {
+    return unscopedProvider.get();
+  }
+
+  @Benchmark
+  public Singleton providerGetSingleton() {
+    return singletonProvider.get();
+  }
+
+  @Benchmark
+  public Root providerGetDeepGraph() {
+    return rootProvider.get();
+  }
+
+  public static class Unscoped {}
+
+  public static class Singleton {}
+
+  /** Not bound by the module, so the injector creates a just-in-time binding for it. */
+  public static class JustInTime {}
+
+  /** Top of a constructor graph of eight levels, each also depending on a shared leaf type. */
+  public static class Root {
+    @Inject Root(Level1 next, Leaf leaf) {}
+  }
+
+  public static class Level1 {
+    @Inject Level1(Level2 next, Leaf leaf) {}
+  }
+
+  public static class Level2 {
+    @Inject Level2(Level3 next, Leaf leaf) {}
+  }
+
+  public static class Level3 {
+    @Inject Level3(Level4 next, Leaf leaf) {}
+  }
+
+  public static class Level4 {
+    @Inject Level4(Level5 next, Leaf leaf) {}
+  }
+
+  public static class Level5 {
+    @Inject Level5(Level6 next, Leaf leaf) {}
+  }
+
+  public static class Level6 {
+    @Inject Level6(Level7 next, Leaf leaf) {}
+  }
+
+  public static class Level7 {
+    @Inject Level7(Leaf leaf) {}
+  }
+
+  public static class Leaf {}
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import static com.google.inject.matcher.Matchers.annotatedWith;
+import static com.google.inject.matcher.Matchers.subclassesOf;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls to methods of an enhanced class, which go through {@code InterceptorStackCallback}, and
+ * provisioning of the enhanced class itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorBenchmark {
+
+  private Injector injector;
+  private Service service;
+  private int argument;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bindInterceptor(subclassesOf(Service.class), annotatedWith(Intercepted.class),
+            new PassThrough());
+        bindInterceptor(subclassesOf(Service.class), annotatedWith(InterceptedThrice.class),
+            new PassThrough(), new PassThrough(), new PassThrough());
+      }
+    });
+    service = injector.getInstance(Service.class);
+  }
+
+  @Benchmark
+  public int notIntercepted() {
+    return service.notIntercepted(argument++);
+  }
+
+  @Benchmark
+  public int oneInterceptor() {
+    return service.intercepted(argument++);
+  }
+
+  @Benchmark
+  public int threeInterceptors() {
+    return service.interceptedThrice(argument++);
+  }
+
+  @Benchmark
+  public Service getInstanceEnhanced() {
+    return injector.getInstance(Service.class);
+  }
+
+  @Retention(RUNTIME) @Target(ElementType.METHOD)
+  public @interface Intercepted {}
+
+  @Retention(RUNTIME) @Target(ElementType.METHOD)
+  public @interface InterceptedThrice {}
+
+  public static class Service {
+    public int notIntercepted(int i) {
+      return i + 1;
+    }
+
+    @Intercepted public int intercepted(int i) {
+      return i + 1;
+    }
+
+    @InterceptedThrice public int interceptedThrice(int i) {
+      return i + 1;
+    }
+  }
+
+  static class PassThrough implements MethodInterceptor {
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+  }
+}
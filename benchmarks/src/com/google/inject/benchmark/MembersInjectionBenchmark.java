@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.MembersInjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Field and method injection, which goes through {@code MembersInjectorImpl} both for existing
+ * instances and for instances the injector constructs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembersInjectionBenchmark {
+
+  private Injector injector;
+  private MembersInjector<Target> membersInjector;
+  private Target target;
+
+  @Setup
+  public void setUp() {
+    injector = Guice.createInjector();
+    membersInjector = injector.getMembersInjector(Target.class);
+    target = new Target();
+  }
+
+  @Benchmark
+  public Target membersInjector() {
+    membersInjector.injectMembers(target);
+    return target;
+  }
+
+  @Benchmark
+  public Target injectorInjectMembers() {
+    injector.injectMembers(target);
+    return target;
+  }
+
+  @Benchmark
+  public Target getInstanceWithMembers() {
+    return injector.getInstance(Target.class);
+  }
+
+  public static class Target {
+    @Inject A a;
+    @Inject B b;
+    @Inject C c;
+    D d;
+    E e;
+
+    @Inject void setD(D d) {
+      this.d = d;
+    }
+
+    @Inject void setE(E e) {
+      this.e = e;
+    }
+  }
+
+  public static class A {}
+  public static class B {}
+  public static class C {}
+  public static class D {}
+  public static class E {}
+}
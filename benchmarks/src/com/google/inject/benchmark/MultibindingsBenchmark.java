@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.BindingAnnotation;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scopes;
+import com.google.inject.TypeLiteral;
+import com.google.inject.binder.ScopedBindingBuilder;
+import com.google.inject.multibindings.MapBinder;
+import com.google.inject.multibindings.Multibinder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.annotation.Retention;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provisioning the collections contributed by {@link Multibinder} and {@link MapBinder}, with
+ * element bindings that are either all singletons or all unscoped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultibindingsBenchmark {
+
+  @Param({"10", "1000"})
+  private int elementCount;
+
+  @Param({"true", "false"})
+  private boolean singletonElements;
+
+  private Provider<Set<Plugin>> setProvider;
+  private Provider<Map<String, Plugin>> mapProvider;
+  private Provider<Map<String, Set<Plugin>>> multimapProvider;
+  private Provider<Map<String, Provider<Plugin>>> providerMapProvider;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        Multibinder<Plugin> setBinder = Multibinder.newSetBinder(binder(), Plugin.class);
+        MapBinder<String, Plugin> mapBinder =
+            MapBinder.newMapBinder(binder(), String.class, Plugin.class);
+        MapBinder<String, Plugin> multimapBinder = MapBinder.newMapBinder(
+            binder(), String.class, Plugin.class, Multi.class).permitDuplicates();
+        for (int i = 0; i < elementCount; i++) {
+          scope(setBinder.addBinding().toProvider(new PluginProvider()));
+          scope(mapBinder.addBinding("plugin" + i).toProvider(new PluginProvider()));
+          scope(multimapBinder.addBinding("plugin" + (i / 2)).toProvider(new PluginProvider()));
+        }
+      }
+
+      private void scope(ScopedBindingBuilder binding) {
+        if (singletonElements) {
+          binding.in(Scopes.SINGLETON);
+        }
+      }
+    });
+    setProvider = injector.getProvider(new Key<Set<Plugin>>() {});
+    mapProvider = injector.getProvider(new Key<Map<String, Plugin>>() {});
+    multimapProvider = injector.getProvider(new Key<Map<String, Set<Plugin>>>(Multi.class) {});
+    providerMapProvider = injector.getProvider(new Key<Map<String, Provider<Plugin>>>() {});
+  }
+
+  @Benchmark
+  public Set<Plugin> multibinderSet() {
+    return setProvider.get();
+  }
+
+  @Benchmark
+  public Map<String, Plugin> mapBinderMap() {
+    return mapProvider.get();
+  }
+
+  @Benchmark
+  public Map<String, Set<Plugin>> mapBinderMultimap() {
+    return multimapProvider.get();
+  }
+
+  @Benchmark
+  public Map<String, Provider<Plugin>> mapBinderProviderMap() {
+    return providerMapProvider.get();
+  }
+
+  @Retention(RUNTIME) @BindingAnnotation
+  public @interface Multi {}
+
+  public interface Plugin {}
+
+  public static class PluginImpl implements Plugin {}
+
+  /** One provider instance per element, so that the multibinders don't treat them as duplicates. */
+  static class PluginProvider implements Provider<Plugin> {
+    public Plugin get() {
+      return new PluginImpl();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import com.google.inject.servlet.GuiceFilter;
+import com.google.inject.servlet.ServletModule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Dispatching a REST-style request through {@link GuiceFilter}, past several filters, to one of
+ * several servlets bound in a {@link ServletModule}. Like a typical web framework's router, the servlet asks for its
+ * servlet path and path info many times per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServletDispatchBenchmark {
+
+  private static final int PATH_LOOKUPS = 20;
+
+  private GuiceFilter filter;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private FilterChain chain;
+
+  @Setup
+  public void setUp() throws ServletException {
+    Injector injector = Guice.createInjector(new ServletModule() {
+      @Override protected void configureServlets() {
+        filter("/*").through(PassThroughFilter.class);
+        filter("*.jsp").through(PassThroughFilter.class);
+        filterRegex("/v[0-9]+/.*").through(PassThroughFilter.class);
+        filter("/api/*").through(PassThroughFilter.class);
+        filterRegex("/api/users/[0-9]+(/.*)?").through(PassThroughFilter.class);
+
+        serve("/static/*").with(RoutingServlet.class);
+        serve("*.html", "*.jsp").with(RoutingServlet.class);
+        serveRegex("/v[0-9]+/.*").with(RoutingServlet.class);
+        serve("/api/*").with(RoutingServlet.class);
+      }
+    });
+    filter = injector.getInstance(GuiceFilter.class);
+    ServletContext servletContext = fake(ServletContext.class, ImmutableMap.<String, Object>of());
+    filter.init(fake(FilterConfig.class,
+        ImmutableMap.<String, Object>of("getServletContext", servletContext)));
+    request = fake(HttpServletRequest.class, ImmutableMap.<String, Object>of(
+        "getMethod", "GET",
+        "getRequestURI", "/app/api/users/42/orders",
+        "getContextPath", "/app",
+        "getServletPath", "/api/users/42/orders"));
+    response = fake(HttpServletResponse.class, ImmutableMap.<String, Object>of());
+    chain = new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new AssertionError("not dispatched to a servlet");
+      }
+    };
+  }
+
+  @TearDown
+  public void tearDown() {
+    filter.destroy();
+  }
+
+  @Benchmark
+  public HttpServletRequest dispatch() throws IOException, ServletException {
+    filter.doFilter(request, response, chain);
+    return request;
+  }
+
+  @Singleton
+  public static class PassThroughFilter implements Filter {
+    public void init(FilterConfig filterConfig) {}
+
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+      chain.doFilter(request, response);
+    }
+
+    public void destroy() {}
+  }
+
+  @Singleton
+  public static class RoutingServlet extends HttpServlet {
+    private static final long serialVersionUID = 0;
+
+    @Override protected void service(HttpServletRequest request, HttpServletResponse response) {
+      int length = 0;
+      for (int i = 0; i < PATH_LOOKUPS; i++) {
+        length += request.getServletPath().length() + request.getPathInfo().length();
+      }
+      if (length == 0) {
+        throw new AssertionError();
+      }
+    }
+  }
+
+  /** Returns a fake that answers from {@code answers} by method name, and null otherwise. */
+  private static <T> T fake(Class<T> type, final Map<String, Object> answers) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return answers.get(method.getName());
+          }
+        }));
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.servlet.GuiceFilter;
+import com.google.inject.servlet.ScopedExecutors;
+import com.google.inject.servlet.ScopingOnly;
+import com.google.inject.servlet.ServletModule;
+import com.google.inject.servlet.ServletScopes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Fanning request work out to a thread pool, either by wrapping each subtask with
+ * {@link ServletScopes#continueRequest} or by submitting it to an executor from
+ * {@link ScopedExecutors}. Each subtask looks up the request from the request scope.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServletScopesBenchmark {
+
+  @Param({"8", "16", "32", "64"})
+  private int subtasks;
+
+  private Filter scopingFilter;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private ExecutorService executor;
+  private ExecutorService scopedExecutor;
+  private Callable<String> subtask;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new ServletModule());
+    scopingFilter = injector.getInstance(Key.get(GuiceFilter.class, ScopingOnly.class));
+    request = fake(HttpServletRequest.class);
+    response = fake(HttpServletResponse.class);
+    executor = Executors.newFixedThreadPool(8);
+    scopedExecutor = ScopedExecutors.requestScoped(executor);
+
+    final Provider<HttpServletRequest> requestProvider =
+        injector.getProvider(HttpServletRequest.class);
+    subtask = new Callable<String>() {
+      public String call() {
+        return requestProvider.get().getMethod();
+      }
+    };
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int continueRequest() throws Exception {
+    return fanOut(new FanOut() {
+      public Future<String> submit(Callable<String> task) {
+        return executor.submit(
+            ServletScopes.continueRequest(task, ImmutableMap.<Key<?>, Object>of()));
+      }
+    });
+  }
+
+  @Benchmark
+  public int scopedExecutor() throws Exception {
+    return fanOut(new FanOut() {
+      public Future<String> submit(Callable<String> task) {
+        return scopedExecutor.submit(task);
+      }
+    });
+  }
+
+  /** Submits the subtasks from within a request and waits for all of them. */
+  private int fanOut(final FanOut fanOut) throws IOException, ServletException {
+    final int[] completed = new int[1];
+    scopingFilter.doFilter(request, response, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        List<Future<String>> futures = Lists.newArrayListWithCapacity(subtasks);
+        for (int i = 0; i < subtasks; i++) {
+          futures.add(fanOut.submit(subtask));
+        }
+        try {
+          for (Future<String> future : futures) {
+            future.get();
+            completed[0]++;
+          }
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    return completed[0];
+  }
+
+  interface FanOut {
+    Future<String> submit(Callable<String> task);
+  }
+
+  /** Returns a request or response that answers "GET" for its method and null otherwise. */
+  private static <T> T fake(Class<T> type) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return method.getName().equals("getMethod") ? "GET" : null;
+          }
+        }));
+  }
+}
@@ -112,6 +112,7 @@ final class BindingProcessor extends AbstractBindingProcessor {
         @SuppressWarnings("unchecked") 
         InternalFactory<T> factory = new InternalFactoryToInitializableAdapter<T>(
             initializable, source, !injector.options.disableCircularProxies,
+            injector.newConstructionContextId(),
             injector.provisionListenerStore.get((ProviderInstanceBinding<T>)binding));
         InternalFactory<? extends T> scopedFactory
             = Scoping.scope(key, injector, factory, source, scoping);
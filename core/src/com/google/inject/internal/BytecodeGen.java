@@ -19,13 +19,16 @@ package com.google.inject.internal;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -218,6 +221,102 @@ public final class BytecodeGen {
   }
   /*end[AOP]*/
 
+  /**
+   * Returns an implementation of the interface {@code type} that passes each method in {@code
+   * handlers} straight to its own handler. {@code equals()}, {@code hashCode()} and {@code
+   * toString()} are passed to {@code objectMethodHandler}. The implementing class is generated once
+   * for the interface and its methods, so calls don't need to look up their handler; without AOP
+   * support this falls back to a {@link java.lang.reflect.Proxy}.
+   */
+  public static <T> T newImplementation(Class<T> type,
+      Map<Method, ? extends InvocationHandler> handlers,
+      final InvocationHandler objectMethodHandler) {
+    /*if[AOP]*/
+    ImmutableMap.Builder<Method, Integer> indices = ImmutableMap.builder();
+    net.sf.cglib.proxy.Callback[] callbacks = new net.sf.cglib.proxy.Callback[handlers.size() + 2];
+    Visibility visibility = Visibility.forType(type);
+    int index = 0;
+    for (Map.Entry<Method, ? extends InvocationHandler> entry : handlers.entrySet()) {
+      indices.put(entry.getKey(), index);
+      callbacks[index++] = new InvocationHandlerCallback(entry.getValue());
+      visibility = visibility.and(Visibility.forMember(entry.getKey()));
+    }
+    callbacks[index] = new InvocationHandlerCallback(objectMethodHandler);
+    callbacks[index + 1] = net.sf.cglib.proxy.NoOp.INSTANCE;
+
+    net.sf.cglib.proxy.Enhancer enhancer = new net.sf.cglib.proxy.Enhancer();
+    enhancer.setInterfaces(new Class<?>[] { type });
+    enhancer.setUseFactory(false);
+    if (visibility == Visibility.PUBLIC) {
+      enhancer.setClassLoader(getClassLoader(type));
+    }
+    enhancer.setNamingPolicy(ENHANCER_NAMING_POLICY);
+    enhancer.setCallbackFilter(new MethodIndexFilter(indices.build()));
+    enhancer.setCallbacks(callbacks);
+    logger.fine("Loading " + type + " implementation with " + enhancer.getClassLoader());
+    return type.cast(enhancer.create());
+    /*end[AOP]*/
+    /*if[NO_AOP]
+    final ImmutableMap<Method, InvocationHandler> handlersByMethod
+        = ImmutableMap.<Method, InvocationHandler>copyOf(handlers);
+    return type.cast(java.lang.reflect.Proxy.newProxyInstance(getClassLoader(type),
+        new Class<?>[] { type }, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            InvocationHandler handler = handlersByMethod.get(method);
+            return (handler != null ? handler : objectMethodHandler).invoke(proxy, method, args);
+          }
+        }));
+    end[NO_AOP]*/
+  }
+
+  /*if[AOP]*/
+  /** Adapts a JDK invocation handler to cglib, so callers never refer to cglib directly. */
+  private static final class InvocationHandlerCallback
+      implements net.sf.cglib.proxy.InvocationHandler {
+    private final InvocationHandler delegate;
+
+    InvocationHandlerCallback(InvocationHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      return delegate.invoke(proxy, method, args);
+    }
+  }
+
+  /**
+   * Routes the handled methods to their own callback, the public methods of {@code Object} to the
+   * callback after those, and anything else to the last callback. Filters are part of cglib's
+   * cache key, so equal filters share a generated class.
+   */
+  private static final class MethodIndexFilter implements net.sf.cglib.proxy.CallbackFilter {
+    private final ImmutableMap<Method, Integer> indices;
+
+    MethodIndexFilter(ImmutableMap<Method, Integer> indices) {
+      this.indices = indices;
+    }
+
+    public int accept(Method method) {
+      Integer index = indices.get(method);
+      if (index != null) {
+        return index;
+      }
+      if (method.getDeclaringClass() == Object.class && Modifier.isPublic(method.getModifiers())) {
+        return indices.size();
+      }
+      return indices.size() + 1;
+    }
+
+    @Override public boolean equals(Object o) {
+      return o instanceof MethodIndexFilter && ((MethodIndexFilter) o).indices.equals(indices);
+    }
+
+    @Override public int hashCode() {
+      return indices.hashCode();
+    }
+  }
+  /*end[AOP]*/
+
   /**
    * The required visibility of a user's class from a Guice-generated class. Visibility of
    * package-private members depends on the loading classloader: only if two classes were loaded by
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.collect.Sets;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Assigns the construction context ids of an injector hierarchy. An injector's ids are released
+ * once it has been garbage collected, and new ids are the smallest ones free, so hierarchies that
+ * create many short-lived child injectors keep their ids dense. An injector can't be collected
+ * while one of its constructors is running, since its factories refer to it.
+ */
+final class ConstructionContextIds {
+
+  private final ReferenceQueue<InjectorImpl> collected = new ReferenceQueue<InjectorImpl>();
+
+  /** Keeps the owners of live injectors reachable until they are enqueued. */
+  private final Set<Owner> owners = Sets.newHashSet();
+
+  /** Ids in use. */
+  private final BitSet used = new BitSet();
+
+  /** One more than the largest id in use. */
+  private volatile int limit;
+
+  /** Returns the owner of the ids that {@code injector} will assign. */
+  synchronized Owner newOwner(InjectorImpl injector) {
+    Owner owner = new Owner(injector, collected);
+    owners.add(owner);
+    return owner;
+  }
+
+  /** Returns a new id for a constructor injector or provider factory of {@code owner}. */
+  synchronized int newId(Owner owner) {
+    for (Reference<?> reference; (reference = collected.poll()) != null; ) {
+      Owner collectedOwner = (Owner) reference;
+      owners.remove(collectedOwner);
+      used.andNot(collectedOwner.ids);
+    }
+
+    int id = used.nextClearBit(0);
+    used.set(id);
+    owner.ids.set(id);
+    limit = used.length();
+    return id;
+  }
+
+  /** Returns one more than the largest id in use. Ids at or past this are free. */
+  int limit() {
+    return limit;
+  }
+
+  /** The ids assigned by one injector, which are released once it is collected. */
+  static final class Owner extends WeakReference<InjectorImpl> {
+    /** Guarded by the {@link ConstructionContextIds} that created this. */
+    final BitSet ids = new BitSet();
+
+    Owner(InjectorImpl injector, ReferenceQueue<InjectorImpl> queue) {
+      super(injector, queue);
+    }
+  }
+}
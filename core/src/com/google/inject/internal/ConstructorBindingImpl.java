@@ -62,7 +62,7 @@ final class ConstructorBindingImpl<T> extends BindingImpl<T>
         = new DefaultConstructionProxyFactory<T>(constructorInjectionPoint).create();
     this.constructorInjectionPoint = constructorInjectionPoint;
     factory.constructorInjector = new ConstructorInjector<T>(
-        injectionPoints, constructionProxy, null, null);
+        injectionPoints, constructionProxy, null, null, -1);
   }
 
   /**
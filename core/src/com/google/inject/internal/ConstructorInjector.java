@@ -35,15 +35,22 @@ final class ConstructorInjector<T> {
   private final SingleParameterInjector<?>[] parameterInjectors;
   private final ConstructionProxy<T> constructionProxy;
   private final MembersInjectorImpl<T> membersInjector;
+  private final int constructionContextId;
 
+  /**
+   * @param constructionContextId the id from {@link InjectorImpl#newConstructionContextId}, or -1
+   *     if this injector is never used to construct instances
+   */
   ConstructorInjector(Set<InjectionPoint> injectableMembers,
       ConstructionProxy<T> constructionProxy,
       SingleParameterInjector<?>[] parameterInjectors,
-      MembersInjectorImpl<T> membersInjector) {
+      MembersInjectorImpl<T> membersInjector,
+      int constructionContextId) {
     this.injectableMembers = ImmutableSet.copyOf(injectableMembers);
     this.constructionProxy = constructionProxy;
     this.parameterInjectors = parameterInjectors;
     this.membersInjector = membersInjector;
+    this.constructionContextId = constructionContextId;
   }
 
   public ImmutableSet<InjectionPoint> getInjectableMembers() {
@@ -62,7 +69,7 @@ final class ConstructorInjector<T> {
       Class<?> expectedType, boolean allowProxy,
       ProvisionListenerStackCallback<T> provisionCallback)
       throws ErrorsException {
-    final ConstructionContext<T> constructionContext = context.getConstructionContext(this);
+    final ConstructionContext<T> constructionContext = context.getConstructionContext(this, constructionContextId);
 
     // We have a circular reference between constructors. Return a proxy.
     if (constructionContext.isConstructing()) {
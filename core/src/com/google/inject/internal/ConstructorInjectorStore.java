@@ -88,6 +88,6 @@ final class ConstructorInjectorStore {
     errors.throwIfNewErrors(numErrorsBefore);
 
     return new ConstructorInjector<T>(membersInjector.getInjectionPoints(), factory.create(),
-        constructorParameterInjectors, membersInjector);
+        constructorParameterInjectors, membersInjector, injector.newConstructionContextId());
   }
 }
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A reentrant lock that refuses to block when blocking would deadlock. Before a thread waits for
+ * a lock held by another thread, it follows the chain of "thread waits for lock owned by thread"
+ * edges; if that chain leads back to the current thread, the lock is not taken and the cycle is
+ * returned to the caller instead.
+ *
+ * <p>The bookkeeping for all locks is guarded by {@code CycleDetectingLock.class}. It is only
+ * touched while acquiring and releasing a lock, never while the lock is held.
+ *
+ * <p>Used by {@link SingletonScope} and by the servlet extension's request and session scopes.
+ */
+public final class CycleDetectingLock<ID> {
+
+  /** Lock that each waiting thread is blocked on. Guarded by {@code CycleDetectingLock.class}. */
+  private static final Map<Thread, CycleDetectingLock<?>> lockThreadIsWaitingOn = Maps.newHashMap();
+
+  private final ID id;
+  private final ReentrantLock lockImplementation = new ReentrantLock();
+
+  /** Thread that currently owns this lock. Guarded by {@code CycleDetectingLock.class}. */
+  private Thread lockOwnerThread;
+
+  /** Number of times the owner acquired this lock. Guarded by {@code CycleDetectingLock.class}. */
+  private int lockReentranceCount;
+
+  public CycleDetectingLock(ID id) {
+    this.id = id;
+  }
+
+  /**
+   * Acquires the lock, or returns the ids of the locks forming a cycle if waiting for this lock
+   * could deadlock. An empty list means the lock was acquired and must later be released with
+   * {@link #unlock}; a non-empty list means it was not acquired.
+   */
+  public List<Object> lockOrDetectPotentialLocksCycle() {
+    Thread currentThread = Thread.currentThread();
+    synchronized (CycleDetectingLock.class) {
+      List<Object> locksInCycle = detectPotentialLocksCycle(currentThread);
+      if (!locksInCycle.isEmpty()) {
+        return locksInCycle;
+      }
+      lockThreadIsWaitingOn.put(currentThread, this);
+    }
+
+    lockImplementation.lock();
+
+    synchronized (CycleDetectingLock.class) {
+      lockThreadIsWaitingOn.remove(currentThread);
+      lockOwnerThread = currentThread;
+      lockReentranceCount++;
+    }
+    return ImmutableList.of();
+  }
+
+  /** Releases a lock previously acquired by {@link #lockOrDetectPotentialLocksCycle}. */
+  public void unlock() {
+    synchronized (CycleDetectingLock.class) {
+      Preconditions.checkState(lockOwnerThread == Thread.currentThread(),
+          "Lock %s is not owned by the current thread", id);
+      if (--lockReentranceCount == 0) {
+        lockOwnerThread = null;
+      }
+    }
+    lockImplementation.unlock();
+  }
+
+  /**
+   * Walks the wait-for graph starting at this lock's owner. Returns the ids of the locks in the
+   * cycle, starting with this one, if the walk ends at {@code currentThread}.
+   */
+  private List<Object> detectPotentialLocksCycle(Thread currentThread) {
+    if (lockOwnerThread == null || lockOwnerThread == currentThread) {
+      // free or reentrant, no deadlock possible
+      return ImmutableList.of();
+    }
+
+    List<Object> locksInCycle = Lists.newArrayList();
+    locksInCycle.add(id);
+    Set<Thread> visitedThreads = Sets.newHashSet();
+    for (Thread thread = lockOwnerThread; visitedThreads.add(thread); ) {
+      CycleDetectingLock<?> lock = lockThreadIsWaitingOn.get(thread);
+      if (lock == null) {
+        // owner is running, it will release our lock eventually
+        return ImmutableList.of();
+      }
+      locksInCycle.add(lock.id);
+      thread = lock.lockOwnerThread;
+      if (thread == null) {
+        // lock is being released right now
+        return ImmutableList.of();
+      }
+      if (thread == currentThread) {
+        return locksInCycle;
+      }
+    }
+    // a cycle that does not involve the current thread; it will be resolved by its members
+    return ImmutableList.of();
+  }
+
+  @Override public String toString() {
+    return "CycleDetectingLock[" + id + "]";
+  }
+}
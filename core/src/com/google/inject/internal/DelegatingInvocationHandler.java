@@ -22,7 +22,7 @@ import java.lang.reflect.Method;
 
 class DelegatingInvocationHandler<T> implements InvocationHandler {
 
-  private T delegate;
+  private volatile T delegate;
 
   public Object invoke(Object proxy, Method method, Object[] args)
       throws Throwable {
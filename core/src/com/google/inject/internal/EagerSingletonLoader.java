@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Constructs eager singletons on a bounded pool of threads. A singleton is only started once the
+ * eager singletons it depends on, directly or through other bindings, are finished, so threads
+ * rarely wait for each other's singleton locks. Dependencies are taken from
+ * {@link HasDependencies}; cycles are broken in favor of the binding that comes first.
+ *
+ * <p>Each singleton collects its failures separately. They are merged in the order the singletons
+ * would have been constructed sequentially, so the resulting errors are the same as without
+ * parallel loading. Enabled with {@link InternalFlags#getParallelSingletonThreads}.
+ */
+final class EagerSingletonLoader {
+
+  private final InjectorImpl injector;
+  private final List<BindingImpl<?>> singletons;
+  private final Errors[] errorsBySingleton;
+  private final Throwable[] failuresBySingleton;
+
+  /** For each singleton, the singletons that wait for it to finish. */
+  private final List<List<Integer>> dependents = Lists.newArrayList();
+  /** For each singleton, the number of singletons it still waits for. */
+  private final AtomicIntegerArray unfinishedDependencies;
+
+  private final ExecutorService executor;
+  private final CountDownLatch done;
+
+  private EagerSingletonLoader(InjectorImpl injector, List<BindingImpl<?>> singletons,
+      int threads) {
+    this.injector = injector;
+    this.singletons = singletons;
+    this.errorsBySingleton = new Errors[singletons.size()];
+    this.failuresBySingleton = new Throwable[singletons.size()];
+    this.unfinishedDependencies = new AtomicIntegerArray(singletons.size());
+    this.done = new CountDownLatch(singletons.size());
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("Guice eager singleton loader #%d")
+        .build());
+  }
+
+  /**
+   * Constructs {@code singletons}, given in the order they would be constructed sequentially, and
+   * returns once all of them are finished. Failures are added to {@code errors}.
+   */
+  static void loadInParallel(InjectorImpl injector, List<BindingImpl<?>> singletons,
+      int threads, Errors errors) {
+    EagerSingletonLoader loader = new EagerSingletonLoader(injector, singletons, threads);
+    try {
+      loader.scheduleRoots(loader.order(loader.findDependencies()));
+      Uninterruptibles.awaitUninterruptibly(loader.done);
+    } finally {
+      loader.executor.shutdown();
+    }
+
+    for (int i = 0; i < singletons.size(); i++) {
+      errors.merge(loader.errorsBySingleton[i]);
+      if (loader.failuresBySingleton[i] != null) {
+        throw Throwables.propagate(loader.failuresBySingleton[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns the eager singletons each singleton depends on. Bindings that aren't eager singletons
+   * themselves are looked through, so that {@code A -> B -> C} makes singleton {@code A} depend on
+   * singleton {@code C} when {@code B} is unscoped.
+   */
+  private List<Set<Integer>> findDependencies() {
+    Map<Key<?>, Integer> indices = Maps.newHashMap();
+    for (int i = 0; i < singletons.size(); i++) {
+      indices.put(singletons.get(i).getKey(), i);
+    }
+
+    List<Set<Integer>> dependencies = Lists.newArrayList();
+    synchronized (injector.state.lock()) {
+      for (int i = 0; i < singletons.size(); i++) {
+        Set<Integer> singletonDependencies = Sets.newLinkedHashSet();
+        Set<Key<?>> visited = Sets.newHashSet();
+        Queue<Binding<?>> queue = new LinkedList<Binding<?>>();
+        queue.add(singletons.get(i));
+        while (!queue.isEmpty()) {
+          Binding<?> binding = queue.remove();
+          if (!(binding instanceof HasDependencies)) {
+            continue;
+          }
+          for (Dependency<?> dependency : ((HasDependencies) binding).getDependencies()) {
+            Key<?> key = dependency.getKey();
+            if (!visited.add(key)) {
+              continue;
+            }
+            Integer index = indices.get(key);
+            if (index != null) {
+              if (index != i) {
+                singletonDependencies.add(index);
+              }
+            } else {
+              Binding<?> dependencyBinding = getExistingBinding(key);
+              if (dependencyBinding != null) {
+                queue.add(dependencyBinding);
+              }
+            }
+          }
+        }
+        dependencies.add(singletonDependencies);
+      }
+    }
+    return dependencies;
+  }
+
+  /** Returns the binding for {@code key} without creating one. Guarded by state.lock(). */
+  private Binding<?> getExistingBinding(Key<?> key) {
+    Binding<?> binding = injector.state.getExplicitBinding(key);
+    for (InjectorImpl i = injector; binding == null && i != null; i = i.parent) {
+      binding = i.jitBindings.get(key);
+    }
+    return binding;
+  }
+
+  /**
+   * Orders the singletons so that each comes after its dependencies. When only singletons with
+   * unordered dependencies are left, they're in a cycle and the first of them is taken next.
+   * Records, for each singleton, the dependencies that come before it in this order; the others
+   * are ignored. Returns the singletons without any such dependencies.
+   */
+  private List<Integer> order(List<Set<Integer>> dependencies) {
+    int size = singletons.size();
+    int[] remaining = new int[size];
+    List<List<Integer>> allDependents = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      allDependents.add(Lists.<Integer>newArrayList());
+    }
+    for (int i = 0; i < size; i++) {
+      for (int dependency : dependencies.get(i)) {
+        allDependents.get(dependency).add(i);
+        remaining[i]++;
+      }
+    }
+
+    int[] position = new int[size];
+    Arrays.fill(position, -1);
+    Queue<Integer> ready = new LinkedList<Integer>();
+    for (int i = 0; i < size; i++) {
+      if (remaining[i] == 0) {
+        ready.add(i);
+      }
+    }
+    int firstUnordered = 0;
+    for (int p = 0; p < size; p++) {
+      Integer next = ready.poll();
+      if (next == null) {
+        while (position[firstUnordered] != -1) {
+          firstUnordered++;
+        }
+        next = firstUnordered;
+      }
+      position[next] = p;
+      for (int dependent : allDependents.get(next)) {
+        if (--remaining[dependent] == 0 && position[dependent] == -1) {
+          ready.add(dependent);
+        }
+      }
+    }
+
+    List<Integer> roots = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      dependents.add(Lists.<Integer>newArrayList());
+    }
+    for (int i = 0; i < size; i++) {
+      int unfinished = 0;
+      for (int dependency : dependencies.get(i)) {
+        if (position[dependency] < position[i]) {
+          dependents.get(dependency).add(i);
+          unfinished++;
+        }
+      }
+      unfinishedDependencies.set(i, unfinished);
+      if (unfinished == 0) {
+        roots.add(i);
+      }
+    }
+    return roots;
+  }
+
+  private void scheduleRoots(List<Integer> roots) {
+    for (int root : roots) {
+      schedule(root);
+    }
+  }
+
+  private void schedule(final int index) {
+    executor.execute(new Runnable() {
+      public void run() {
+        try {
+          Errors errors = new Errors();
+          errorsBySingleton[index] = errors;
+          InternalInjectorCreator.loadEagerSingleton(injector, singletons.get(index), errors);
+        } catch (Throwable t) {
+          failuresBySingleton[index] = t;
+        } finally {
+          for (int dependent : dependents.get(index)) {
+            if (unfinishedDependencies.decrementAndGet(dependent) == 0) {
+              schedule(dependent);
+            }
+          }
+          done.countDown();
+        }
+      }
+    });
+  }
+}
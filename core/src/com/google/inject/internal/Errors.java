@@ -440,6 +440,12 @@ public final class Errors implements Serializable {
         expectedType);
   }
 
+  public Errors singletonCreationCycleBetweenThreads(List<?> locksCycle) {
+    return addMessage("Singletons in the creation cycle %s were requested concurrently by different"
+        + " threads. Each thread holds one of them while waiting for the next, so the cycle cannot"
+        + " be completed.", locksCycle);
+  }
+
   public void throwCreationExceptionIfErrorsExist() {
     if (!hasErrors()) {
       return;
@@ -57,6 +57,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default {@link Injector} implementation.
@@ -112,6 +113,12 @@ final class InjectorImpl implements Injector, Lookups {
 
   /** Just-in-time binding cache. Guarded by state.lock() */
   final Map<Key<?>, BindingImpl<?>> jitBindings = Maps.newHashMap();
+  /**
+   * Just-in-time bindings that are completely initialized, for lookups that don't take
+   * state.lock(). Each entry is also in {@link #jitBindings}. Written only while holding
+   * state.lock(), and only once the outermost JIT lookup that created the binding succeeded.
+   */
+  final ConcurrentMap<Key<?>, BindingImpl<?>> publishedJitBindings = Maps.newConcurrentMap();
   /**
    * Cache of Keys that we were unable to create JIT bindings for, so we don't
    * keep trying.  Also guarded by state.lock().
@@ -127,9 +134,12 @@ final class InjectorImpl implements Injector, Lookups {
 
     if (parent != null) {
       localContext = parent.localContext;
+      constructionContextIds = parent.constructionContextIds;
     } else {
-      localContext = new ThreadLocal<Object[]>();
+      localContext = new ThreadLocal<InternalContext>();
+      constructionContextIds = new ConstructionContextIds();
     }
+    constructionContextIdOwner = constructionContextIds.newOwner(this);
   }
 
   /** Indexes bindings by type. */
@@ -165,6 +175,10 @@ final class InjectorImpl implements Injector, Lookups {
     if (explicitBinding != null) {
       return explicitBinding;
     }
+    BindingImpl<T> publishedBinding = getPublishedJitBinding(key);
+    if (publishedBinding != null) {
+      return publishedBinding;
+    }
     synchronized (state.lock()) {
       // See if any jit bindings have been created for this key.
       for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
@@ -241,6 +255,16 @@ final class InjectorImpl implements Injector, Lookups {
       throws ErrorsException {
 
     boolean jitOverride = isProvider(key) || isTypeLiteral(key) || isMembersInjector(key);
+
+    // Fast path: the binding was completely created by an earlier lookup.
+    BindingImpl<T> publishedBinding = getPublishedJitBinding(key);
+    if (publishedBinding != null) {
+      return checkJitAllowed(publishedBinding, key, errors, jitType, jitOverride);
+    }
+
+    // Only the outermost lookup may publish. Nested lookups create bindings that are still
+    // subject to cleanup() if the binding that depends on them fails.
+    boolean outermost = !Thread.holdsLock(state.lock());
     synchronized (state.lock()) {
       // first try to find a JIT binding that we've already created
       for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
@@ -248,16 +272,11 @@ final class InjectorImpl implements Injector, Lookups {
         BindingImpl<T> binding = (BindingImpl<T>) injector.jitBindings.get(key);
 
         if (binding != null) {
-          // If we found a JIT binding and we don't allow them,
-          // fail.  (But allow bindings created through TypeConverters.)
-          if (options.jitDisabled
-              && jitType == JitLimitation.NO_JIT
-              && !jitOverride
-              && !(binding instanceof ConvertedConstantBindingImpl)) {
-            throw errors.jitDisabled(key).toException();
-          } else {
-            return binding;
+          checkJitAllowed(binding, key, errors, jitType, jitOverride);
+          if (outermost) {
+            injector.publishedJitBindings.putIfAbsent(key, binding);
           }
+          return binding;
         }
       }
 
@@ -278,10 +297,53 @@ final class InjectorImpl implements Injector, Lookups {
       if (failedJitBindings.contains(key) && errors.hasErrors()) {
         throw errors.toException();
       }
-      return createJustInTimeBindingRecursive(key, errors, options.jitDisabled, jitType);
+      BindingImpl<T> binding =
+          createJustInTimeBindingRecursive(key, errors, options.jitDisabled, jitType);
+      if (outermost) {
+        publishJitBinding(binding);
+      }
+      return binding;
     } // end synchronized(state.lock())
   }
 
+  /** Returns the completely created JIT binding for {@code key}, looking in parents too. */
+  private <T> BindingImpl<T> getPublishedJitBinding(Key<T> key) {
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      @SuppressWarnings("unchecked") // we only store bindings that match their key
+      BindingImpl<T> binding = (BindingImpl<T>) injector.publishedJitBindings.get(key);
+      if (binding != null) {
+        return binding;
+      }
+    }
+    return null;
+  }
+
+  /** Publishes {@code binding} in the injector whose JIT cache holds it. Requires state.lock(). */
+  private void publishJitBinding(BindingImpl<?> binding) {
+    Key<?> key = binding.getKey();
+    for (InjectorImpl injector = this; injector != null; injector = injector.parent) {
+      if (injector.jitBindings.get(key) == binding) {
+        injector.publishedJitBindings.putIfAbsent(key, binding);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Fails if we found a JIT binding but don't allow them. (But allow bindings created through
+   * TypeConverters.)
+   */
+  private <T> BindingImpl<T> checkJitAllowed(BindingImpl<T> binding, Key<T> key, Errors errors,
+      JitLimitation jitType, boolean jitOverride) throws ErrorsException {
+    if (options.jitDisabled
+        && jitType == JitLimitation.NO_JIT
+        && !jitOverride
+        && !(binding instanceof ConvertedConstantBindingImpl)) {
+      throw errors.jitDisabled(key).toException();
+    }
+    return binding;
+  }
+
   /** Returns true if the key type is Provider (but not a subclass of Provider). */
   private static boolean isProvider(Key<?> key) {
     return key.getTypeLiteral().getRawType().equals(Provider.class);
@@ -598,6 +660,7 @@ final class InjectorImpl implements Injector, Lookups {
   private void removeFailedJitBinding(Binding<?> binding, InjectionPoint ip) {
     failedJitBindings.add(binding.getKey());
     jitBindings.remove(binding.getKey());
+    publishedJitBindings.remove(binding.getKey());
     membersInjectorStore.remove(binding.getKey().getTypeLiteral());
     provisionListenerStore.remove(binding);
     if(ip != null) {
@@ -710,7 +773,7 @@ final class InjectorImpl implements Injector, Lookups {
     Key<? extends Provider<T>> providerKey = (Key<? extends Provider<T>>) Key.get(providerType);
     ProvidedByInternalFactory<T> internalFactory =
         new ProvidedByInternalFactory<T>(rawType, providerType,
-            providerKey, !options.disableCircularProxies);
+            providerKey, !options.disableCircularProxies, newConstructionContextId());
     Object source = rawType;
     BindingImpl<T> binding = LinkedProviderBindingImpl.createWithInitializer(
         this,
@@ -1000,22 +1063,21 @@ final class InjectorImpl implements Injector, Lookups {
 
     return new Provider<T>() {
       public T get() {
-        final Errors errors = new Errors(dependency);
+        InternalContext context = enterContext();
+        // Errors are collected without the dependency as their source, so that successful
+        // provisions can share one instance. The source is added back below on failure.
+        Errors errors = context.getErrorsForProvision();
+        Dependency previous = context.pushDependency(dependency, binding.getSource());
         try {
-          T t = callInContext(new ContextualCallable<T>() {
-            public T call(InternalContext context) throws ErrorsException {
-              Dependency previous = context.pushDependency(dependency, binding.getSource());
-              try {
-                return binding.getInternalFactory().get(errors, context, dependency, false);
-              } finally {
-                context.popStateAndSetDependency(previous);
-              }
-            }
-          });
+          T t = binding.getInternalFactory().get(errors, context, dependency, false);
           errors.throwIfNewErrors(0);
           return t;
         } catch (ErrorsException e) {
-          throw new ProvisionException(errors.merge(e.getErrors()).getMessages());
+          errors.merge(e.getErrors());
+          throw new ProvisionException(new Errors(dependency).merge(errors).getMessages());
+        } finally {
+          context.popStateAndSetDependency(previous);
+          context.close();
         }
       }
 
@@ -1044,29 +1106,53 @@ final class InjectorImpl implements Injector, Lookups {
     return getProvider(type).get();
   }
 
-  private final ThreadLocal<Object[]> localContext;
+  /** This thread's context, shared with parent and child injectors. */
+  private final ThreadLocal<InternalContext> localContext;
+
+  /** Source of construction context ids, shared with parent and child injectors. */
+  private final ConstructionContextIds constructionContextIds;
+
+  /** The construction context ids of this injector, released once it is garbage collected. */
+  private final ConstructionContextIds.Owner constructionContextIdOwner;
+
+  /**
+   * Returns a new id for a constructor injector or provider factory, used to index its
+   * construction context in {@link InternalContext}. Ids are dense within an injector hierarchy.
+   */
+  int newConstructionContextId() {
+    return constructionContextIds.newId(constructionContextIdOwner);
+  }
+
+  /**
+   * Enters this thread's context, creating it the first time. Callers must {@link
+   * InternalContext#close close} it in a finally block.
+   */
+  InternalContext enterContext() {
+    InternalContext context = localContext.get();
+    if (context == null) {
+      context = new InternalContext(constructionContextIds);
+      localContext.set(context);
+    }
+    context.enter();
+    return context;
+  }
 
-  /** Looks up thread local context. Creates (and removes) a new context if necessary. */
+  /** Looks up thread local context and calls {@code callable} in it. */
   <T> T callInContext(ContextualCallable<T> callable) throws ErrorsException {
-    Object[] reference = localContext.get();
-    if (reference == null) {
-      reference = new Object[1];
-      localContext.set(reference);
-    }
-    if (reference[0] == null) {
-      reference[0] = new InternalContext();
-      try {
-        return callable.call((InternalContext)reference[0]);
-      } finally {
-        // Only clear the context if this call created it.
-        reference[0] = null;
-      }
-    } else {
-      // Someone else will clean up this context.
-      return callable.call((InternalContext)reference[0]);
+    InternalContext context = enterContext();
+    try {
+      return callable.call(context);
+    } finally {
+      context.close();
     }
   }
 
+  /** Returns the context of the provision running on this thread, or null if there is none. */
+  InternalContext getLocalContext() {
+    InternalContext context = localContext.get();
+    return context != null && context.isEntered() ? context : null;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(Injector.class)
@@ -23,7 +23,7 @@ import com.google.inject.Key;
 import com.google.inject.spi.Dependency;
 import com.google.inject.spi.DependencyAndSource;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -31,11 +31,44 @@ import java.util.Map;
  * Internal context. Used to coordinate injections and support circular
  * dependencies.
  *
+ * <p>Each thread has one context per injector hierarchy, which is reused by all provisions on
+ * that thread. Provisions bracket their use with {@link InjectorImpl#enterContext} and
+ * {@link #close}; the context is reset when the outermost provision closes it.
+ *
  * @author crazybob@google.com (Bob Lee)
  */
 final class InternalContext {
 
-  private Map<Object, ConstructionContext<?>> constructionContexts = Maps.newHashMap();
+  /**
+   * Largest construction context id stored in {@link #indexedConstructionContexts}. Hierarchies
+   * with more live constructors than this fall back to {@link #constructionContexts} for the rest.
+   */
+  static final int MAX_INDEXED_ID = (1 << 16) - 1;
+
+  private static final int MIN_INDEXED_LENGTH = 16;
+
+  /** Assigns the ids of {@link #indexedConstructionContexts}. */
+  private final ConstructionContextIds constructionContextIds;
+
+  /**
+   * Construction contexts by id, grown on demand and trimmed to the ids in use by the outermost
+   * provision. Construction contexts are back in their initial state once a provision is done, so
+   * they are reused by later provisions on this thread, even once their id has been reassigned.
+   */
+  private ConstructionContext<?>[] indexedConstructionContexts =
+      new ConstructionContext<?>[MIN_INDEXED_LENGTH];
+
+  /** Construction contexts without an indexed id, cleared by the outermost provision. */
+  private final Map<Object, ConstructionContext<?>> constructionContexts = Maps.newHashMap();
+
+  /** Number of provisions on this thread that are currently using this context. */
+  private int enterCount;
+
+  /**
+   * Errors shared by outermost provisions. Only failing provisions add messages, so it is
+   * replaced lazily once it has any.
+   */
+  private Errors reusableErrors;
 
   /** Keeps track of the type that is currently being requested for injection. */
   private Dependency<?> dependency;
@@ -49,8 +82,74 @@ final class InternalContext {
    */
   private final List<Object> state = Lists.newArrayList();
 
+  InternalContext(ConstructionContextIds constructionContextIds) {
+    this.constructionContextIds = constructionContextIds;
+  }
+
+  void enter() {
+    enterCount++;
+  }
+
+  /** Leaves this context. The outermost provision resets it for the next one. */
+  void close() {
+    if (--enterCount == 0) {
+      constructionContexts.clear();
+      dependency = null;
+      state.clear();
+
+      // ids past the limit were released with their injectors, typically short-lived children
+      int length = indexedConstructionContexts.length;
+      if (length > MIN_INDEXED_LENGTH) {
+        int limit = constructionContextIds.limit();
+        if (length > 2 * limit) {
+          indexedConstructionContexts = Arrays.copyOf(
+              indexedConstructionContexts, Math.max(limit, MIN_INDEXED_LENGTH));
+        }
+      }
+    }
+  }
+
+  /** Returns true if a provision on this thread is currently using this context. */
+  boolean isEntered() {
+    return enterCount > 0;
+  }
+
+  /**
+   * Returns an empty errors object for the provision that just entered this context. Nested
+   * provisions get their own instance, because the provision they run in may have collected
+   * errors already.
+   */
+  Errors getErrorsForProvision() {
+    if (enterCount > 1) {
+      return new Errors();
+    }
+    if (reusableErrors == null || reusableErrors.hasErrors()) {
+      reusableErrors = new Errors();
+    }
+    return reusableErrors;
+  }
+
+  /**
+   * Returns the construction context for {@code key}, a constructor injector or provider factory.
+   * {@code id} is the construction context id its injector assigned to it, or -1 if it has none;
+   * keys without an indexed id are looked up by identity.
+   */
   @SuppressWarnings("unchecked")
-  public <T> ConstructionContext<T> getConstructionContext(Object key) {
+  public <T> ConstructionContext<T> getConstructionContext(Object key, int id) {
+    if (id >= 0 && id <= MAX_INDEXED_ID) {
+      ConstructionContext<?>[] contexts = indexedConstructionContexts;
+      if (id >= contexts.length) {
+        contexts = indexedConstructionContexts = Arrays.copyOf(
+            contexts, Math.min(Math.max(contexts.length * 2, id + 1), MAX_INDEXED_ID + 1));
+      }
+      ConstructionContext<T> constructionContext = (ConstructionContext<T>) contexts[id];
+      if (constructionContext == null) {
+        constructionContext = new ConstructionContext<T>();
+        contexts[id] = constructionContext;
+      }
+      return constructionContext;
+    }
+
     ConstructionContext<T> constructionContext
         = (ConstructionContext<T>) constructionContexts.get(key);
     if (constructionContext == null) {
@@ -36,7 +36,15 @@ public class InternalFlags {
   }
 
 
+  /** The flag is read once, because it is consulted for every element a module records. */
+  private static final IncludeStackTraceOption INCLUDE_STACK_TRACES =
+      parseIncludeStackTraceOption();
+
   public static IncludeStackTraceOption getIncludeStackTraceOption() {
+    return INCLUDE_STACK_TRACES;
+  }
+
+  private static IncludeStackTraceOption parseIncludeStackTraceOption() {
     String flag = System.getProperty("guice_include_stack_traces");
     try {
       return (flag == null || flag.length() == 0)
@@ -49,4 +57,31 @@ public class InternalFlags {
       return IncludeStackTraceOption.ONLY_FOR_DECLARING_SOURCE;
     }
   }
+
+  /**
+   * The number of threads used to construct eager singletons, or 0 (the default) to construct them
+   * all on the creating thread.
+   */
+  public static int getParallelSingletonThreads() {
+    return getThreadCount("guice_parallel_singleton_threads");
+  }
+
+  private static int getThreadCount(String name) {
+    String flag = System.getProperty(name);
+    if (flag == null || flag.length() == 0) {
+      return 0;
+    }
+    try {
+      int threads = Integer.parseInt(flag);
+      if (threads >= 0) {
+        return threads;
+      }
+    } catch (NumberFormatException e) {
+      // fall through to the warning
+    }
+    logger.warning(flag
+        + " is not a valid flag value for " + name + ". "
+        + " Values must be non-negative integers.");
+    return 0;
+  }
 }
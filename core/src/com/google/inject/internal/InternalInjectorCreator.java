@@ -18,6 +18,7 @@ package com.google.inject.internal;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.inject.Binding;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -188,37 +189,53 @@ public final class InternalInjectorCreator {
    * Loads eager singletons, or all singletons if we're in Stage.PRODUCTION. Bindings discovered
    * while we're binding these singletons are not be eager.
    */
-  void loadEagerSingletons(InjectorImpl injector, Stage stage, final Errors errors) {
+  void loadEagerSingletons(InjectorImpl injector, Stage stage, Errors errors) {
     @SuppressWarnings("unchecked") // casting Collection<Binding> to Collection<BindingImpl> is safe
     Iterable<BindingImpl<?>> candidateBindings = ImmutableList.copyOf(Iterables.concat(
         (Collection) injector.state.getExplicitBindingsThisLevel().values(),
         injector.jitBindings.values()));
-    for (final BindingImpl<?> binding : candidateBindings) {
+    List<BindingImpl<?>> eagerSingletons = Lists.newArrayList();
+    for (BindingImpl<?> binding : candidateBindings) {
       if (isEagerSingleton(injector, binding, stage)) {
-        try {
-          injector.callInContext(new ContextualCallable<Void>() {
-            Dependency<?> dependency = Dependency.get(binding.getKey());
-            public Void call(InternalContext context) {
-              Dependency previous = context.pushDependency(dependency, binding.getSource());
-              Errors errorsForBinding = errors.withSource(dependency);
-              try {
-                binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
-              } catch (ErrorsException e) {
-                errorsForBinding.merge(e.getErrors());
-              } finally {
-                context.popStateAndSetDependency(previous);
-              }
-
-              return null;
-            }
-          });
-        } catch (ErrorsException e) {
-          throw new AssertionError();
-        }
+        eagerSingletons.add(binding);
+      }
+    }
+
+    int threads = InternalFlags.getParallelSingletonThreads();
+    if (threads > 0 && eagerSingletons.size() > 1) {
+      EagerSingletonLoader.loadInParallel(injector, eagerSingletons, threads, errors);
+    } else {
+      for (BindingImpl<?> binding : eagerSingletons) {
+        loadEagerSingleton(injector, binding, errors);
       }
     }
   }
 
+  /** Provisions {@code binding}, adding failures to {@code errors}. */
+  static void loadEagerSingleton(
+      InjectorImpl injector, final BindingImpl<?> binding, final Errors errors) {
+    try {
+      injector.callInContext(new ContextualCallable<Void>() {
+        Dependency<?> dependency = Dependency.get(binding.getKey());
+        public Void call(InternalContext context) {
+          Dependency previous = context.pushDependency(dependency, binding.getSource());
+          Errors errorsForBinding = errors.withSource(dependency);
+          try {
+            binding.getInternalFactory().get(errorsForBinding, context, dependency, false);
+          } catch (ErrorsException e) {
+            errorsForBinding.merge(e.getErrors());
+          } finally {
+            context.popStateAndSetDependency(previous);
+          }
+
+          return null;
+        }
+      });
+    } catch (ErrorsException e) {
+      throw new AssertionError();
+    }
+  }
+
   private boolean isEagerSingleton(InjectorImpl injector, BindingImpl<?> binding, Stage stage) {
     if (binding.getScoping().isEagerSingleton(stage)) {
       return true;
@@ -43,8 +43,9 @@ class ProvidedByInternalFactory<T> extends ProviderInternalFactory<T>
       Class<?> rawType,
       Class<? extends Provider<?>> providerType,
       Key<? extends Provider<T>> providerKey,
-      boolean allowProxy) {
-    super(providerKey, allowProxy);
+      boolean allowProxy,
+      int constructionContextId) {
+    super(providerKey, allowProxy, constructionContextId);
     this.rawType = rawType;
     this.providerType = providerType; 
     this.providerKey = providerKey;
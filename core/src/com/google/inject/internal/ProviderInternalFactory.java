@@ -33,11 +33,16 @@ import javax.inject.Provider;
 abstract class ProviderInternalFactory<T> implements InternalFactory<T> {
   
   private final boolean allowProxy;
+  private final int constructionContextId;
   protected final Object source;
   
-  ProviderInternalFactory(Object source, boolean allowProxy) {
+  /**
+   * @param constructionContextId the id from {@link InjectorImpl#newConstructionContextId}
+   */
+  ProviderInternalFactory(Object source, boolean allowProxy, int constructionContextId) {
     this.source = checkNotNull(source, "source");
     this.allowProxy = allowProxy;
+    this.constructionContextId = constructionContextId;
   }
   
   protected T circularGet(final Provider<? extends T> provider, final Errors errors,
@@ -45,7 +50,7 @@ abstract class ProviderInternalFactory<T> implements InternalFactory<T> {
       ProvisionListenerStackCallback<T> provisionCallback)
       throws ErrorsException {    
     Class<?> expectedType = dependency.getKey().getTypeLiteral().getRawType();
-    final ConstructionContext<T> constructionContext = context.getConstructionContext(this);
+    final ConstructionContext<T> constructionContext = context.getConstructionContext(this, constructionContextId);
 
     // We have a circular reference between constructors. Return a proxy.
     if (constructionContext.isConstructing()) {
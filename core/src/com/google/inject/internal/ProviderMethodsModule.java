@@ -95,7 +95,7 @@ public final class ProviderMethodsModule implements Module {
 
   public List<ProviderMethod<?>> getProviderMethods(Binder binder) {
     List<ProviderMethod<?>> result = Lists.newArrayList();
-    Multimap<Signature, Method> methodsBySignature = HashMultimap.create();
+    List<Method> overridableMethods = Lists.newArrayList();
     for (Class<?> c = delegate.getClass(); c != Object.class; c = c.getSuperclass()) {
       for (Method method : c.getDeclaredMethods()) {
         // private/static methods cannot override or be overridden by other methods, so there is no
@@ -105,13 +105,21 @@ public final class ProviderMethodsModule implements Module {
         // increasing visibility of a subclass).
         if (((method.getModifiers() & (Modifier.PRIVATE | Modifier.STATIC)) == 0)
             && !method.isBridge() && !method.isSynthetic()) {
-          methodsBySignature.put(new Signature(method), method);
+          overridableMethods.add(method);
         }
         if (isProvider(method)) {
           result.add(createProviderMethod(binder, method));
         }
       }
     }
+    if (result.isEmpty()) {
+      // most modules have no provider methods, so don't pay for resolving every signature
+      return result;
+    }
+    Multimap<Signature, Method> methodsBySignature = HashMultimap.create();
+    for (Method method : overridableMethods) {
+      methodsBySignature.put(new Signature(method), method);
+    }
     // we have found all the providers and now need to identify if any were overridden
     // In the worst case this will have O(n^2) in the number of @Provides methods, but that is only
     // assuming that every method is an override, in general it should be very quick.
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.internal;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+import com.google.inject.Scope;
+import com.google.inject.Scopes;
+import com.google.inject.spi.Dependency;
+
+import java.util.List;
+
+/**
+ * One instance per {@link com.google.inject.Injector}. This is the implementation behind
+ * {@link Scopes#SINGLETON}.
+ *
+ * <p>Each scoped binding has its own creation lock, so unrelated singletons may be constructed by
+ * different threads at the same time. Circular dependencies within one thread are handled by the
+ * reentrant lock and the constructor's own circular proxies, exactly as before. Circular
+ * dependencies between threads (thread A holds singleton X and waits for Y, while thread B holds
+ * Y and waits for X) are detected by {@link CycleDetectingLock}: instead of deadlocking, the
+ * second thread receives a circular proxy for the singleton it could not lock, or a
+ * {@link ProvisionException} if no proxy can be created.
+ */
+public class SingletonScope implements Scope {
+
+  /** A sentinel value representing null. */
+  private static final Object NULL = new Object();
+
+  public <T> Provider<T> scope(final Key<T> key, final Provider<T> creator) {
+    return new Provider<T>() {
+      /*
+       * The lazily initialized singleton instance. Once set, this will either have type T or will
+       * be equal to NULL.
+       */
+      private volatile Object instance;
+
+      /** Serves circular proxies to threads that would otherwise deadlock on creationLock. */
+      private final ConstructionContext<T> constructionContext = new ConstructionContext<T>();
+
+      private final CycleDetectingLock<Key<T>> creationLock = new CycleDetectingLock<Key<T>>(key);
+
+      // DCL on a volatile is safe as of Java 5, which we obviously require.
+      @SuppressWarnings("DoubleCheckedLocking")
+      public T get() {
+        if (instance == null) {
+          List<Object> locksCycle = creationLock.lockOrDetectPotentialLocksCycle();
+          if (locksCycle.isEmpty()) {
+            // This block is re-entrant for circular dependencies.
+            try {
+              if (instance == null) {
+                T provided = creator.get();
+
+                // don't remember proxies; these exist only to serve circular dependencies
+                if (Scopes.isCircularProxy(provided)) {
+                  return provided;
+                }
+
+                Object providedOrSentinel = (provided == null) ? NULL : provided;
+                if (instance != null && instance != providedOrSentinel) {
+                  throw new ProvisionException(
+                      "Provider was reentrant while creating a singleton");
+                }
+
+                synchronized (constructionContext) {
+                  instance = providedOrSentinel;
+                  constructionContext.setProxyDelegates(provided);
+                  constructionContext.finishConstruction();
+                }
+              }
+            } finally {
+              creationLock.unlock();
+            }
+          } else {
+            // Another thread is creating this singleton and is (indirectly) waiting for us.
+            synchronized (constructionContext) {
+              if (instance == null) {
+                return createCycleProxy(locksCycle);
+              }
+            }
+          }
+        }
+
+        Object localInstance = instance;
+        // This is safe because instance has type T or is equal to NULL
+        @SuppressWarnings("unchecked")
+        T returnedInstance = (localInstance != NULL) ? (T) localInstance : null;
+        return returnedInstance;
+      }
+
+      /**
+       * Returns a proxy for the instance being created by another thread. The proxy is backed by
+       * the instance once that thread finishes. Guarded by {@code constructionContext}.
+       */
+      private T createCycleProxy(List<Object> locksCycle) {
+        InjectorImpl injector = creator instanceof ProviderToInternalFactoryAdapter
+            ? ((ProviderToInternalFactoryAdapter<T>) creator).getInjector()
+            : null;
+        InternalContext context = injector != null ? injector.getLocalContext() : null;
+        Dependency<?> dependency = context != null ? context.getDependency() : null;
+        Class<?> expectedType = dependency != null
+            ? dependency.getKey().getTypeLiteral().getRawType()
+            : key.getTypeLiteral().getRawType();
+
+        Errors errors = new Errors();
+        try {
+          if (injector == null || injector.options.disableCircularProxies) {
+            throw errors.circularProxiesDisabled(expectedType).toException();
+          }
+          @SuppressWarnings("unchecked") // the proxy implements expectedType, a supertype of T
+          T proxy = (T) constructionContext.createProxy(errors, expectedType);
+          return proxy;
+        } catch (ErrorsException e) {
+          throw new ProvisionException(
+              errors.singletonCreationCycleBetweenThreads(locksCycle).getMessages());
+        }
+      }
+
+      @Override
+      public String toString() {
+        return String.format("%s[%s]", creator, Scopes.SINGLETON);
+      }
+    };
+  }
+
+  @Override public String toString() {
+    return "Scopes.SINGLETON";
+  }
+}
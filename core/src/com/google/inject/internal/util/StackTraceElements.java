@@ -23,8 +23,14 @@ import com.google.common.collect.MapMaker;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 /**
  * Creates stack trace elements for members.
@@ -55,6 +61,15 @@ public class StackTraceElements {
   private static Map<Object, Object> cache = new MapMaker().makeMap();
   private static final String UNKNOWN_SOURCE = "Unknown Source";
 
+  /**
+   * The JDK's {@code sun.misc.JavaLangAccess}, which reads single frames of a throwable's stack
+   * trace, or null if this JDK doesn't have it.
+   */
+  private static final Object javaLangAccess = getJavaLangAccess();
+  private static final Method getStackTraceElementMethod = javaLangAccess == null
+      ? null : getJavaLangAccessMethod("getStackTraceElement", Throwable.class, int.class);
+  private static final Method getStackTraceDepthMethod = getStackTraceDepthMethod();
+
   public static Object forMember(Member member) {
     if (member == null) {
       return SourceProvider.UNKNOWN_SOURCE;
@@ -92,6 +107,81 @@ public class StackTraceElements {
     return new StackTraceElement(implementation.getName(), "class", fileName, lineNumber);
   }
   
+  /**
+   * Returns the stack trace of {@code throwable}, creating each {@link StackTraceElement} only when
+   * it is read. Callers that only look at the top few frames avoid materializing the whole stack.
+   * If the JDK doesn't support reading single frames, this is {@link Throwable#getStackTrace}.
+   */
+  public static List<StackTraceElement> lazyStackTrace(Throwable throwable) {
+    if (getStackTraceElementMethod == null || getStackTraceDepthMethod == null) {
+      return Arrays.asList(throwable.getStackTrace());
+    }
+    return new LazyStackTrace(throwable);
+  }
+
+  private static final class LazyStackTrace extends AbstractList<StackTraceElement>
+      implements RandomAccess {
+    private final Throwable throwable;
+    private final int depth;
+
+    LazyStackTrace(Throwable throwable) {
+      this.throwable = throwable;
+      this.depth = (Integer) invokeJavaLangAccess(getStackTraceDepthMethod, throwable);
+    }
+
+    @Override public StackTraceElement get(int index) {
+      return (StackTraceElement) invokeJavaLangAccess(getStackTraceElementMethod, throwable, index);
+    }
+
+    @Override public int size() {
+      return depth;
+    }
+  }
+
+  private static Object invokeJavaLangAccess(Method method, Object... arguments) {
+    try {
+      return method.invoke(javaLangAccess, arguments);
+    } catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    } catch (InvocationTargetException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static Object getJavaLangAccess() {
+    try {
+      Class<?> sharedSecrets = Class.forName("sun.misc.SharedSecrets", false, null);
+      return sharedSecrets.getMethod("getJavaLangAccess").invoke(null);
+    } catch (Exception e) {
+      return null; // not a JDK we know how to read single frames from
+    }
+  }
+
+  private static Method getJavaLangAccessMethod(String name, Class<?>... parameterTypes) {
+    try {
+      return Class.forName("sun.misc.JavaLangAccess", false, null).getMethod(name, parameterTypes);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static Method getStackTraceDepthMethod() {
+    if (javaLangAccess == null) {
+      return null;
+    }
+    Method method = getJavaLangAccessMethod("getStackTraceDepth", Throwable.class);
+    if (method == null) {
+      return null;
+    }
+    try {
+      // some JDKs declare this method but throw UnsupportedOperationException
+      method.invoke(javaLangAccess, new Throwable());
+      return method;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
   /**
    * Clears the internal cache for {@link StackTraceElement StackTraceElements}.
    */
@@ -17,10 +17,12 @@
 package com.google.inject;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.inject.internal.ConstructionContextIdsTest;
 import com.google.inject.internal.MoreTypesTest;
 import com.google.inject.internal.UniqueAnnotationsTest;
 import com.google.inject.internal.WeakKeySetTest;
 import com.google.inject.internal.util.LineNumbersTest;
+import com.google.inject.internal.util.StackTraceElementsTest;
 import com.google.inject.matcher.MatcherTest;
 import com.google.inject.name.NamedEquivalanceTest;
 import com.google.inject.name.NamesTest;
@@ -108,7 +110,9 @@ public class AllTests {
     suite.addTestSuite(WeakKeySetTest.class);
 
     // internal
+    suite.addTestSuite(ConstructionContextIdsTest.class);
     suite.addTestSuite(LineNumbersTest.class);
+    suite.addTestSuite(StackTraceElementsTest.class);
     suite.addTestSuite(MoreTypesTest.class);
     suite.addTestSuite(UniqueAnnotationsTest.class);
 
@@ -114,6 +114,54 @@ public class CircularDependencyTest extends TestCase {
     assertSame(a, injector.getInstance(A.class));
   }
 
+  /**
+   * Construction state is reused between provisions on the same thread; each provision must see
+   * it fresh.
+   */
+  public void testUnscopedCircularDependencyProvisionedRepeatedly() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        bind(Ping.class).to(PingImpl.class);
+        bind(Pong.class).to(PongImpl.class);
+      }
+    });
+    Ping previous = null;
+    for (int i = 0; i < 3; i++) {
+      Ping ping = injector.getInstance(Ping.class);
+      assertNotSame(previous, ping);
+      assertSame(ping.pong(), ping.pong().ping().pong());
+      previous = ping;
+    }
+  }
+
+  public interface Ping {
+    Pong pong();
+  }
+
+  public interface Pong {
+    Ping ping();
+  }
+
+  static class PingImpl implements Ping {
+    final Pong pong;
+    @Inject PingImpl(Pong pong) {
+      this.pong = pong;
+    }
+    public Pong pong() {
+      return pong;
+    }
+  }
+
+  static class PongImpl implements Pong {
+    final Ping ping;
+    @Inject PongImpl(Ping ping) {
+      this.ping = ping;
+    }
+    public Ping ping() {
+      return ping;
+    }
+  }
+
   @ProvidedBy(AutoAP.class)
   public interface A {
     B getB();
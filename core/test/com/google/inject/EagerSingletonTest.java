@@ -16,19 +16,38 @@
 
 package com.google.inject;
 
+import com.google.common.collect.Lists;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+import com.google.inject.spi.Message;
+import com.google.inject.spi.ProvisionListener;
+
 import junit.framework.TestCase;
 
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * @author jessewilson@google.com (Jesse Wilson)
  */
 public class EagerSingletonTest extends TestCase {
 
+  private static final String PARALLEL_FLAG = "guice_parallel_singleton_threads";
+
   @Override public void setUp() {
     A.instanceCount = 0;
     B.instanceCount = 0;
     C.instanceCount = 0;
   }
 
+  @Override protected void tearDown() throws Exception {
+    System.clearProperty(PARALLEL_FLAG);
+    super.tearDown();
+  }
+
   public void testJustInTimeEagerSingletons() {
     Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
       protected void configure() {
@@ -67,6 +86,103 @@ public class EagerSingletonTest extends TestCase {
     assertEquals(1, C.instanceCount);
   }
 
+  public void testParallelLoadingConstructsIndependentSingletonsConcurrently() {
+    System.setProperty(PARALLEL_FLAG, "2");
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    final List<Boolean> results = Lists.newArrayList();
+    Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
+      @Override protected void configure() {}
+
+      @Provides @Singleton @Named("first") Object first() throws InterruptedException {
+        return awaitOther();
+      }
+
+      @Provides @Singleton @Named("second") Object second() throws InterruptedException {
+        return awaitOther();
+      }
+
+      Object awaitOther() throws InterruptedException {
+        bothStarted.countDown();
+        boolean concurrent = bothStarted.await(10, TimeUnit.SECONDS);
+        synchronized (results) {
+          results.add(concurrent);
+        }
+        return concurrent;
+      }
+    });
+    assertEquals(Lists.newArrayList(true, true), results);
+  }
+
+  public void testParallelLoadingStartsSingletonsAfterTheirDependencies() {
+    System.setProperty(PARALLEL_FLAG, "4");
+    final AtomicBoolean cFinished = new AtomicBoolean();
+    final AtomicBoolean aStartedAfterC = new AtomicBoolean();
+    Guice.createInjector(Stage.PRODUCTION, new AbstractModule() {
+      @Override protected void configure() {
+        bindListener(Matchers.any(), new ProvisionListener() {
+          public <T> void onProvision(ProvisionInvocation<T> provision) {
+            if (provision.getBinding().getKey().equals(Key.get(String.class, Names.named("a")))) {
+              aStartedAfterC.set(cFinished.get());
+            }
+            provision.provision();
+          }
+        });
+      }
+
+      @Provides @Singleton @Named("a") String a(@Named("b") String b) {
+        return "a";
+      }
+
+      @Provides @Named("b") String b(@Named("c") String c) {
+        return "b";
+      }
+
+      @Provides @Singleton @Named("c") String c() throws InterruptedException {
+        // a loader that ignored dependencies would start "a" in the meantime
+        Thread.sleep(100);
+        cFinished.set(true);
+        return "c";
+      }
+    });
+    assertTrue(aStartedAfterC.get());
+  }
+
+  public void testParallelLoadingReportsErrorsInSequentialOrder() {
+    Module module = new AbstractModule() {
+      @Override protected void configure() {
+        for (int i = 0; i < 20; i++) {
+          final int index = i;
+          bind(Key.get(String.class, Names.named("failing" + i)))
+              .toProvider(new Provider<String>() {
+                public String get() {
+                  throw new IllegalStateException("failure " + index);
+                }
+              })
+              .asEagerSingleton();
+        }
+      }
+    };
+
+    // stack traces differ between threads, so only compare the messages and their sources
+    List<String> sequentialMessages = createAndGetMessages(module);
+    System.setProperty(PARALLEL_FLAG, "4");
+    assertEquals(sequentialMessages, createAndGetMessages(module));
+  }
+
+  private List<String> createAndGetMessages(Module module) {
+    try {
+      Guice.createInjector(module);
+      fail();
+      return null;
+    } catch (CreationException expected) {
+      List<String> messages = Lists.newArrayList();
+      for (Message message : expected.getErrorMessages()) {
+        messages.add(message.getMessage() + " at " + message.getSources());
+      }
+      return messages;
+    }
+  }
+
   @Singleton
   static class A {
     static int instanceCount = 0;
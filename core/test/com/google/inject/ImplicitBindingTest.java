@@ -17,13 +17,22 @@
 package com.google.inject;
 
 import com.google.common.collect.Iterables;
+import com.google.inject.matcher.Matchers;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.google.inject.spi.Message;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
 
 import junit.framework.TestCase;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author crazybob@google.com (Bob Lee)
@@ -392,4 +401,50 @@ public class ImplicitBindingTest extends TestCase {
   @ImplementedBy(EnumWithImplementedByEnum.class)
   enum EnumWithImplementedBy {}
   private static class EnumWithImplementedByEnum {}
+
+  static class AlreadyBound {}
+  static class BoundWhileLocked {}
+
+  /**
+   * Existing just-in-time bindings must be served while another thread holds the injector's lock
+   * to create a new one.
+   */
+  public void testExistingJitBindingLookupDoesNotWaitForJitBindingCreation() throws Exception {
+    final CountDownLatch creating = new CountDownLatch(1);
+    final CountDownLatch lookedUp = new CountDownLatch(1);
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bindListener(Matchers.only(TypeLiteral.get(BoundWhileLocked.class)), new TypeListener() {
+          public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+            // runs while the JIT binding for BoundWhileLocked is being created
+            creating.countDown();
+            try {
+              assertTrue(lookedUp.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        });
+      }
+    });
+    AlreadyBound alreadyBound = injector.getInstance(AlreadyBound.class);
+    assertNotNull(alreadyBound);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<BoundWhileLocked> boundWhileLocked = executor.submit(
+          new Callable<BoundWhileLocked>() {
+            public BoundWhileLocked call() {
+              return injector.getInstance(BoundWhileLocked.class);
+            }
+          });
+      assertTrue(creating.await(5, TimeUnit.SECONDS));
+      assertNotNull(injector.getInstance(AlreadyBound.class));
+      assertNotNull(injector.getExistingBinding(Key.get(AlreadyBound.class)));
+      lookedUp.countDown();
+      assertNotNull(boundWhileLocked.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
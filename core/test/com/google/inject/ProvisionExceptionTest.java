@@ -271,6 +271,23 @@ public class ProvisionExceptionTest extends TestCase {
     }
   }
 
+  /**
+   * Provisions on one thread reuse their context. A failed provision must not leak its errors into
+   * the next one, nor into the provision that a failed nested provision runs in.
+   */
+  public void testErrorsDoNotLeakIntoLaterProvisions() {
+    Injector injector = Guice.createInjector();
+    for (int i = 0; i < 2; i++) {
+      try {
+        injector.getInstance(A.class);
+        fail();
+      } catch (ProvisionException expected) {
+        assertEquals(1, expected.getErrorMessages().size());
+      }
+      assertNotNull(injector.getInstance(CatchesNestedFailure.class));
+    }
+  }
+
   private class InnerClass {}
 
   static class A {
@@ -284,6 +301,15 @@ public class ProvisionExceptionTest extends TestCase {
     @Inject
     void setD(RealD d) { }
   }
+  static class CatchesNestedFailure {
+    @Inject CatchesNestedFailure(Provider<A> a) {
+      try {
+        a.get();
+        fail();
+      } catch (ProvisionException expected) {
+      }
+    }
+  }
   static class E {
     @Inject void setObject(Object o) {
       throw new UnsupportedOperationException();
@@ -41,6 +41,12 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author crazybob@google.com (Bob Lee)
@@ -767,4 +773,126 @@ public class ScopesTest extends TestCase {
     injector.getInstance(ThrowingSingleton.class);
     assertEquals(2, ThrowingSingleton.nextInstanceId);
   }
+
+  /** Waits until both singletons of a test are under construction. */
+  static CountDownLatch bothConstructing;
+
+  @Singleton
+  static class ParallelSingletonA {
+    @Inject ParallelSingletonA() throws InterruptedException {
+      bothConstructing.countDown();
+      assertTrue("B was not constructed concurrently",
+          bothConstructing.await(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+  }
+
+  @Singleton
+  static class ParallelSingletonB {
+    @Inject ParallelSingletonB() throws InterruptedException {
+      bothConstructing.countDown();
+      assertTrue("A was not constructed concurrently",
+          bothConstructing.await(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+  }
+
+  private static final long DEADLOCK_TIMEOUT_SECONDS = 5;
+
+  public void testIndependentSingletonsAreCreatedInParallel() throws Exception {
+    bothConstructing = new CountDownLatch(2);
+    final Injector injector = Guice.createInjector();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<ParallelSingletonA> a = executor.submit(new Callable<ParallelSingletonA>() {
+        public ParallelSingletonA call() {
+          return injector.getInstance(ParallelSingletonA.class);
+        }
+      });
+      Future<ParallelSingletonB> b = executor.submit(new Callable<ParallelSingletonB>() {
+        public ParallelSingletonB call() {
+          return injector.getInstance(ParallelSingletonB.class);
+        }
+      });
+      assertSame(injector.getInstance(ParallelSingletonA.class),
+          a.get(DEADLOCK_TIMEOUT_SECONDS * 2, TimeUnit.SECONDS));
+      assertSame(injector.getInstance(ParallelSingletonB.class),
+          b.get(DEADLOCK_TIMEOUT_SECONDS * 2, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public interface CycleA {
+    CycleB b();
+    String name();
+  }
+
+  public interface CycleB {
+    CycleA a();
+    String name();
+  }
+
+  @Singleton
+  static class CycleAImpl implements CycleA {
+    final CycleB b;
+    @Inject CycleAImpl(Provider<CycleB> b) throws InterruptedException {
+      bothConstructing.countDown();
+      bothConstructing.await(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      this.b = b.get();
+    }
+    public CycleB b() {
+      return b;
+    }
+    public String name() {
+      return "A";
+    }
+  }
+
+  @Singleton
+  static class CycleBImpl implements CycleB {
+    final CycleA a;
+    @Inject CycleBImpl(Provider<CycleA> a) throws InterruptedException {
+      bothConstructing.countDown();
+      bothConstructing.await(DEADLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      this.a = a.get();
+    }
+    public CycleA a() {
+      return a;
+    }
+    public String name() {
+      return "B";
+    }
+  }
+
+  public void testSingletonCycleAcrossThreadsIsResolvedWithProxy() throws Exception {
+    bothConstructing = new CountDownLatch(2);
+    final Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(CycleA.class).to(CycleAImpl.class);
+        bind(CycleB.class).to(CycleBImpl.class);
+      }
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<CycleA> futureA = executor.submit(new Callable<CycleA>() {
+        public CycleA call() {
+          return injector.getInstance(CycleA.class);
+        }
+      });
+      Future<CycleB> futureB = executor.submit(new Callable<CycleB>() {
+        public CycleB call() {
+          return injector.getInstance(CycleB.class);
+        }
+      });
+      CycleA a = futureA.get(DEADLOCK_TIMEOUT_SECONDS * 2, TimeUnit.SECONDS);
+      CycleB b = futureB.get(DEADLOCK_TIMEOUT_SECONDS * 2, TimeUnit.SECONDS);
+
+      // one of the two threads was handed a proxy, which now delegates to the real singleton
+      assertEquals("A", b.a().name());
+      assertEquals("B", a.b().name());
+      assertEquals("A", a.b().a().name());
+      assertEquals("B", b.a().b().name());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
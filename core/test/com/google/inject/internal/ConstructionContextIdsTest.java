@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.inject.internal;
+
+import static com.google.inject.internal.WeakKeySetUtils.awaitClear;
+
+import com.google.inject.Guice;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that construction context ids are reused once their injector has been collected, and
+ * threads' contexts drop the construction contexts of released ids.
+ */
+public class ConstructionContextIdsTest extends TestCase {
+
+  public void testIdsOfCollectedInjectorsAreReused() {
+    ConstructionContextIds ids = new ConstructionContextIds();
+    InjectorImpl live = (InjectorImpl) Guice.createInjector();
+    ConstructionContextIds.Owner liveOwner = ids.newOwner(live);
+    ConstructionContextIds.Owner collectedOwner =
+        ids.newOwner((InjectorImpl) Guice.createInjector());
+
+    assertEquals(0, ids.newId(liveOwner));
+    assertEquals(1, ids.newId(collectedOwner));
+    assertEquals(2, ids.newId(collectedOwner));
+    assertEquals(3, ids.newId(liveOwner));
+    assertEquals(4, ids.limit());
+
+    awaitClear(collectedOwner);
+    assertEquals(1, ids.newId(liveOwner));
+    assertEquals(2, ids.newId(liveOwner));
+    assertEquals(4, ids.newId(liveOwner));
+    assertEquals(5, ids.limit());
+  }
+
+  public void testOutermostProvisionDropsContextsOfReleasedIds() {
+    ConstructionContextIds ids = new ConstructionContextIds();
+    InjectorImpl live = (InjectorImpl) Guice.createInjector();
+    ConstructionContextIds.Owner liveOwner = ids.newOwner(live);
+    ConstructionContextIds.Owner collectedOwner =
+        ids.newOwner((InjectorImpl) Guice.createInjector());
+    assertEquals(0, ids.newId(liveOwner));
+    int lastId = 0;
+    for (int i = 0; i < 1000; i++) {
+      lastId = ids.newId(collectedOwner);
+    }
+
+    Object liveKey = new Object();
+    Object collectedKey = new Object();
+    InternalContext context = new InternalContext(ids);
+    context.enter();
+    ConstructionContext<?> liveContext = context.getConstructionContext(liveKey, 0);
+    ConstructionContext<?> collectedContext = context.getConstructionContext(collectedKey, lastId);
+    context.close();
+
+    // contexts are kept while their ids are in use
+    context.enter();
+    assertSame(collectedContext, context.getConstructionContext(collectedKey, lastId));
+    context.close();
+
+    awaitClear(collectedOwner);
+    assertEquals(1, ids.newId(liveOwner));
+    context.enter();
+    context.close();
+
+    context.enter();
+    assertSame(liveContext, context.getConstructionContext(liveKey, 0));
+    assertNotSame(collectedContext, context.getConstructionContext(collectedKey, lastId));
+    context.close();
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.inject.internal.util;
+
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class StackTraceElementsTest extends TestCase {
+
+  public void testLazyStackTraceMatchesStackTrace() {
+    Throwable throwable = new Throwable();
+    List<StackTraceElement> lazyStackTrace = StackTraceElements.lazyStackTrace(throwable);
+    assertEquals(Arrays.asList(throwable.getStackTrace()), ImmutableList.copyOf(lazyStackTrace));
+    assertEquals(getClass().getName(), lazyStackTrace.get(0).getClassName());
+    assertEquals("testLazyStackTraceMatchesStackTrace", lazyStackTrace.get(0).getMethodName());
+  }
+
+  public void testSourceProviderSkipsClassesInLazyStackTrace() {
+    SourceProvider sourceProvider =
+        SourceProvider.DEFAULT_INSTANCE.plusSkippedClasses(StackTraceElementsTest.class);
+    StackTraceElement source =
+        sourceProvider.get(StackTraceElements.lazyStackTrace(new Throwable()));
+    assertFalse(source.getClassName().equals(getClass().getName()));
+    assertEquals(new Throwable().getStackTrace()[1], source);
+  }
+}
@@ -59,7 +59,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Proxy;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -117,6 +116,8 @@ final class FactoryProvider2 <F> implements InvocationHandler,
     final Constructor<?> constructor;
     /** the return type in the factory method that the constructor is bound to. */
     final Key<?> returnType;
+    /** the return type with our own binding annotation, bound in each child injector. */
+    final Key<?> returnKey;
     /** the parameters in the factory method associated with this data. */
     final ImmutableList<Key<?>> paramTypes;
     /** the type of the implementation constructed */
@@ -130,22 +131,27 @@ final class FactoryProvider2 <F> implements InvocationHandler,
     /** true if {@link #isValidForOptimizedAssistedInject} returned true. */
     final boolean optimized;
     /** the list of optimized providers, empty if not optimized. */
-    final List<ThreadLocalProvider> providers;
+    final List<ArgumentProvider> providers;
+    /** the arguments of the current call, read by the optimized providers. */
+    final ThreadLocal<Object[]> arguments;
     /** used to perform optimized factory creations. */
     volatile Binding<?> cachedBinding; // TODO: volatile necessary?
 
     AssistData(Constructor<?> constructor, Key<?> returnType, ImmutableList<Key<?>> paramTypes,
         TypeLiteral<?> implementationType, Method factoryMethod,
         Set<Dependency<?>> dependencies,
-        boolean optimized, List<ThreadLocalProvider> providers) {
+        boolean optimized, List<ArgumentProvider> providers, ThreadLocal<Object[]> arguments) {
       this.constructor = constructor;
       this.returnType = returnType;
+      // We ignore any pre-existing binding annotation.
+      this.returnKey = Key.get(returnType.getTypeLiteral(), RETURN_ANNOTATION);
       this.paramTypes = paramTypes;
       this.implementationType = implementationType;
       this.factoryMethod = factoryMethod;
       this.dependencies = dependencies;
       this.optimized = optimized;
       this.providers = providers;
+      this.arguments = arguments;
     }
 
     @Override
@@ -273,7 +279,8 @@ final class FactoryProvider2 <F> implements InvocationHandler,
         }
 
         Constructor<?> constructor = (Constructor<?>) ctorInjectionPoint.getMember();
-        List<ThreadLocalProvider> providers = Collections.emptyList();
+        List<ArgumentProvider> providers = Collections.emptyList();
+        ThreadLocal<Object[]> arguments = null;
         Set<Dependency<?>> deps = getDependencies(ctorInjectionPoint, implementation);
         boolean optimized = false;
         // Now go through all dependencies of the implementation and see if it is OK to
@@ -282,16 +289,17 @@ final class FactoryProvider2 <F> implements InvocationHandler,
         // or an Injector), because it caches a single child injector and mutates the Provider
         // of the arguments in a ThreadLocal.
         if(isValidForOptimizedAssistedInject(deps, implementation.getRawType(), factoryType)) {
-          ImmutableList.Builder<ThreadLocalProvider> providerListBuilder = ImmutableList.builder();
+          arguments = new ThreadLocal<Object[]>();
+          ImmutableList.Builder<ArgumentProvider> providerListBuilder = ImmutableList.builder();
           for(int i = 0; i < params.size(); i++) {
-            providerListBuilder.add(new ThreadLocalProvider());
+            providerListBuilder.add(new ArgumentProvider(arguments, i));
           }
           providers = providerListBuilder.build();
           optimized = true;
         }
         assistDataBuilder.put(method,
             new AssistData(constructor, returnType, immutableParamList, implementation,
-                method, removeAssistedDeps(deps), optimized, providers));
+                method, removeAssistedDeps(deps), optimized, providers, arguments));
       }
 
       // If we generated any errors (from finding matching constructors, for instance), throw an exception.
@@ -304,8 +312,11 @@ final class FactoryProvider2 <F> implements InvocationHandler,
       throw new ConfigurationException(e.getErrors().getMessages());
     }
 
-    factory = factoryRawType.cast(Proxy.newProxyInstance(BytecodeGen.getClassLoader(factoryRawType),
-        new Class[] { factoryRawType }, this));
+    ImmutableMap.Builder<Method, FactoryMethodHandler> handlers = ImmutableMap.builder();
+    for (AssistData data : assistDataByMethod.values()) {
+      handlers.put(data.factoryMethod, new FactoryMethodHandler(data));
+    }
+    factory = BytecodeGen.newImplementation(factoryRawType, handlers.build(), this);
   }
 
   public F get() {
@@ -603,45 +614,8 @@ final class FactoryProvider2 <F> implements InvocationHandler,
     checkState(injector != null,
         "Factories.create() factories cannot be used until they're initialized by Guice.");
 
-    final Key<?> returnType = data.returnType;
-
-    // We ignore any pre-existing binding annotation.
-    final Key<?> returnKey = Key.get(returnType.getTypeLiteral(), RETURN_ANNOTATION);
-
-    Module assistedModule = new AbstractModule() {
-      @Override
-      @SuppressWarnings({
-        "unchecked", "rawtypes"}) // raw keys are necessary for the args array and return value
-      protected void configure() {
-        Binder binder = binder().withSource(method);
-
-        int p = 0;
-        if(!data.optimized) {
-          for (Key<?> paramKey : data.paramTypes) {
-            // Wrap in a Provider to cover null, and to prevent Guice from injecting the parameter
-            binder.bind((Key) paramKey).toProvider(Providers.of(args[p++]));
-          }
-        } else {
-          for (Key<?> paramKey : data.paramTypes) {
-            // Bind to our ThreadLocalProviders.
-            binder.bind((Key) paramKey).toProvider(data.providers.get(p++));
-          }
-        }
-
-        Constructor constructor = data.constructor;
-        // Constructor *should* always be non-null here,
-        // but if it isn't, we'll end up throwing a fairly good error
-        // message for the user.
-        if(constructor != null) {
-          binder.bind(returnKey)
-              .toConstructor(constructor, (TypeLiteral)data.implementationType)
-              .in(Scopes.NO_SCOPE); // make sure we erase any scope on the implementation type
-        }
-      }
-    };
-
-    Injector forCreate = injector.createChildInjector(assistedModule);
-    Binding<?> binding = forCreate.getBinding(returnKey);
+    Injector forCreate = injector.createChildInjector(new AssistedModule(method, args, data));
+    Binding<?> binding = forCreate.getBinding(data.returnKey);
     // If we have providers cached in data, cache the binding for future optimizations.
     if(data.optimized) {
       data.cachedBinding = binding;
@@ -650,46 +624,104 @@ final class FactoryProvider2 <F> implements InvocationHandler,
   }
 
   /**
-   * When a factory method is invoked, we create a child injector that binds all parameters, then
-   * use that to get an instance of the return type.
+   * Binds the arguments of one factory method call, and the method's result. This implements
+   * {@link Module} directly rather than extending {@link AbstractModule}: unoptimized factory
+   * methods install it on every call, and the injector scans the whole class hierarchy of each
+   * module it installs for provider methods.
    */
-  public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
-    if (method.getDeclaringClass().equals(Object.class)) {
-      if ("equals".equals(method.getName())) {
-        return proxy == args[0];
-      } else if ("hashCode".equals(method.getName())) {
-        return System.identityHashCode(proxy);
+  private static final class AssistedModule implements Module {
+    private final Method method;
+    private final Object[] args;
+    private final AssistData data;
+
+    AssistedModule(Method method, Object[] args, AssistData data) {
+      this.method = method;
+      this.args = args;
+      this.data = data;
+    }
+
+    @SuppressWarnings({
+      "unchecked", "rawtypes"}) // raw keys are necessary for the args array and return value
+    public void configure(Binder binder) {
+      binder = binder.withSource(method);
+
+      int p = 0;
+      if(!data.optimized) {
+        for (Key<?> paramKey : data.paramTypes) {
+          // Wrap in a Provider to cover null, and to prevent Guice from injecting the parameter
+          binder.bind((Key) paramKey).toProvider(Providers.of(args[p++]));
+        }
       } else {
-        return method.invoke(this, args);
+        for (Key<?> paramKey : data.paramTypes) {
+          // Bind to providers of the current call's arguments.
+          binder.bind((Key) paramKey).toProvider(data.providers.get(p++));
+        }
+      }
+
+      Constructor constructor = data.constructor;
+      // Constructor *should* always be non-null here,
+      // but if it isn't, we'll end up throwing a fairly good error
+      // message for the user.
+      if(constructor != null) {
+        binder.bind(data.returnKey)
+            .toConstructor(constructor, (TypeLiteral)data.implementationType)
+            .in(Scopes.NO_SCOPE); // make sure we erase any scope on the implementation type
       }
     }
+  }
 
-    AssistData data = assistDataByMethod.get(method);
-    Provider<?> provider;
-    if(data.cachedBinding != null) { // Try to get optimized form...
-      provider = data.cachedBinding.getProvider();
+  /**
+   * Implements the methods of {@code Object} for the factory. Factory methods are dispatched
+   * straight to their {@link FactoryMethodHandler}.
+   */
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if ("equals".equals(method.getName())) {
+      return proxy == args[0];
+    } else if ("hashCode".equals(method.getName())) {
+      return System.identityHashCode(proxy);
     } else {
-      provider = getBindingFromNewInjector(method, args, data).getProvider();
+      return method.invoke(this, args);
     }
-    try {
-      int p = 0;
-      for(ThreadLocalProvider tlp : data.providers) {
-        tlp.set(args[p++]);
+  }
+
+  /**
+   * Handles calls to one factory method. When it is invoked, we create a child injector that binds
+   * all parameters, then use that to get an instance of the return type. Optimized methods reuse
+   * the first child injector, and publish each call's arguments to its providers instead.
+   */
+  private final class FactoryMethodHandler implements InvocationHandler {
+    private final AssistData data;
+
+    FactoryMethodHandler(AssistData data) {
+      this.data = data;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Provider<?> provider;
+      if(data.cachedBinding != null) { // Try to get optimized form...
+        provider = data.cachedBinding.getProvider();
+      } else {
+        provider = getBindingFromNewInjector(method, args, data).getProvider();
       }
-      return provider.get();
-    } catch (ProvisionException e) {
-      // if this is an exception declared by the factory method, throw it as-is
-      if (e.getErrorMessages().size() == 1) {
-        Message onlyError = getOnlyElement(e.getErrorMessages());
-        Throwable cause = onlyError.getCause();
-        if (cause != null && canRethrow(method, cause)) {
-          throw cause;
-        }
+      if (data.optimized) {
+        data.arguments.set(args);
       }
-      throw e;
-    } finally {
-      for(ThreadLocalProvider tlp : data.providers) {
-        tlp.remove();
+      try {
+        return provider.get();
+      } catch (ProvisionException e) {
+        // if this is an exception declared by the factory method, throw it as-is
+        if (e.getErrorMessages().size() == 1) {
+          Message onlyError = getOnlyElement(e.getErrorMessages());
+          Throwable cause = onlyError.getCause();
+          if (cause != null && canRethrow(method, cause)) {
+            throw cause;
+          }
+        }
+        throw e;
+      } finally {
+        if (data.optimized) {
+          data.arguments.remove();
+        }
       }
     }
   }
@@ -726,13 +758,25 @@ final class FactoryProvider2 <F> implements InvocationHandler,
     return false;
   }
 
+  /** Provides one argument of the factory method call in progress on this thread. */
   // not <T> because we'll never know and this is easier than suppressing warnings.
-  private static class ThreadLocalProvider extends ThreadLocal<Object> implements Provider<Object> {
-    @Override
-    protected Object initialValue() {
-      throw new IllegalStateException(
-          "Cannot use optimized @Assisted provider outside the scope of the constructor."
-              + " (This should never happen.  If it does, please report it.)");
+  private static class ArgumentProvider implements Provider<Object> {
+    private final ThreadLocal<Object[]> arguments;
+    private final int index;
+
+    ArgumentProvider(ThreadLocal<Object[]> arguments, int index) {
+      this.arguments = arguments;
+      this.index = index;
+    }
+
+    public Object get() {
+      Object[] args = arguments.get();
+      if (args == null) {
+        throw new IllegalStateException(
+            "Cannot use optimized @Assisted provider outside the scope of the constructor."
+                + " (This should never happen.  If it does, please report it.)");
+      }
+      return args[index];
     }
   }
 }
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.compiler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Binder;
+import com.google.inject.Binding;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.MembersInjector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.Stage;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.Message;
+import com.google.inject.spi.TypeConverterBinding;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Superclass of the injectors generated by {@link InjectorCompiler}. A compiled injector can
+ * provide instances for the keys it was compiled with, and nothing else. It has no bindings to
+ * inspect: the methods that list bindings return empty collections, {@link #getExistingBinding}
+ * returns null, and {@link #getBinding} throws a {@link ConfigurationException}, as do the members
+ * injection methods.
+ *
+ * <p>Child injectors are regular Guice injectors. Their parent is an injector in {@link
+ * Stage#DEVELOPMENT development stage} that binds each compiled key to this injector's provider
+ * for it, so children can depend on compiled keys but not rebind them. The parent is created the
+ * first time a child is, and shared by all children.
+ *
+ * <p>Compiled injectors are safe for use by multiple threads.
+ *
+ * @since 4.0
+ */
+public abstract class CompiledInjector implements Injector {
+
+  private final ImmutableMap<Key<?>, Integer> indices;
+
+  /** The parent of child injectors, created by the first call to {@link #createChildInjector}. */
+  private Injector childInjectorParent;
+
+  /**
+   * @param keys the keys this injector provides, indexed the way {@link #provide} expects them.
+   *     Keys that are {@code null} can only be injected as dependencies of other keys.
+   */
+  protected CompiledInjector(Key<?>[] keys) {
+    ImmutableMap.Builder<Key<?>, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        builder.put(keys[i], i);
+      }
+    }
+    this.indices = builder.build();
+  }
+
+  /** Returns an instance for the key at {@code index}. */
+  protected abstract Object provide(int index);
+
+  /** Returns a provider for the key at {@code index}. */
+  protected final <T> Provider<T> provider(final int index) {
+    return new Provider<T>() {
+      @SuppressWarnings("unchecked") // the generated subclass returns a T for this index
+      public T get() {
+        return (T) provide(index);
+      }
+
+      @Override public String toString() {
+        return "CompiledProvider[" + index + "]";
+      }
+    };
+  }
+
+  public <T> Provider<T> getProvider(Key<T> key) {
+    return provider(indexOf(key));
+  }
+
+  public <T> Provider<T> getProvider(Class<T> type) {
+    return getProvider(Key.get(type));
+  }
+
+  @SuppressWarnings("unchecked") // the generated subclass returns a T for the key's index
+  public <T> T getInstance(Key<T> key) {
+    return (T) provide(indexOf(key));
+  }
+
+  public <T> T getInstance(Class<T> type) {
+    return getInstance(Key.get(type));
+  }
+
+  private int indexOf(Key<?> key) {
+    Integer index = indices.get(key);
+    if (index == null) {
+      throw new ConfigurationException(ImmutableList.of(new Message(String.format(
+          "No implementation for %s was compiled into %s.", key, getClass().getName()))));
+    }
+    return index;
+  }
+
+  /** Compiled injectors are always top-level injectors. */
+  public Injector getParent() {
+    return null;
+  }
+
+  public void injectMembers(Object instance) {
+    throw notCompiled("Members injection of " + instance.getClass().getName());
+  }
+
+  public <T> MembersInjector<T> getMembersInjector(TypeLiteral<T> typeLiteral) {
+    throw notCompiled("Members injection of " + typeLiteral);
+  }
+
+  public <T> MembersInjector<T> getMembersInjector(Class<T> type) {
+    throw notCompiled("Members injection of " + type.getName());
+  }
+
+  public Map<Key<?>, Binding<?>> getBindings() {
+    return ImmutableMap.of();
+  }
+
+  public Map<Key<?>, Binding<?>> getAllBindings() {
+    return ImmutableMap.of();
+  }
+
+  public <T> Binding<T> getBinding(Key<T> key) {
+    throw notCompiled("A binding for " + key);
+  }
+
+  public <T> Binding<T> getBinding(Class<T> type) {
+    return getBinding(Key.get(type));
+  }
+
+  public <T> Binding<T> getExistingBinding(Key<T> key) {
+    return null;
+  }
+
+  public <T> List<Binding<T>> findBindingsByType(TypeLiteral<T> type) {
+    return ImmutableList.of();
+  }
+
+  public Injector createChildInjector(Iterable<? extends Module> modules) {
+    return getChildInjectorParent().createChildInjector(modules);
+  }
+
+  private synchronized Injector getChildInjectorParent() {
+    if (childInjectorParent == null) {
+      childInjectorParent = Guice.createInjector(new Module() {
+        public void configure(Binder binder) {
+          for (Map.Entry<Key<?>, Integer> entry : indices.entrySet()) {
+            bindCompiled(binder, entry.getKey(), entry.getValue());
+          }
+        }
+      });
+    }
+    return childInjectorParent;
+  }
+
+  private <T> void bindCompiled(Binder binder, Key<T> key, int index) {
+    binder.withSource(getClass()).bind(key).toProvider(this.<T>provider(index));
+  }
+
+  public Injector createChildInjector(Module... modules) {
+    return createChildInjector(ImmutableList.copyOf(modules));
+  }
+
+  public Map<Class<? extends Annotation>, Scope> getScopeBindings() {
+    return ImmutableMap.of();
+  }
+
+  public Set<TypeConverterBinding> getTypeConverterBindings() {
+    return ImmutableSet.of();
+  }
+
+  private ConfigurationException notCompiled(String what) {
+    return new ConfigurationException(ImmutableList.of(new Message(String.format(
+        "%s is not available from compiled injectors such as %s.", what, getClass().getName()))));
+  }
+
+  @Override public String toString() {
+    return getClass().getSimpleName() + "[keys=" + indices.keySet() + "]";
+  }
+}
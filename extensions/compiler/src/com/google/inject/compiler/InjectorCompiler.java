@@ -0,0 +1,854 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.compiler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Binding;
+import com.google.inject.BindingAnnotation;
+import com.google.inject.ConfigurationException;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.MembersInjector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.Scopes;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import com.google.inject.spi.BindingScopingVisitor;
+import com.google.inject.spi.ConstructorBinding;
+import com.google.inject.spi.ConvertedConstantBinding;
+import com.google.inject.spi.DefaultBindingTargetVisitor;
+import com.google.inject.spi.DefaultElementVisitor;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.ElementVisitor;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.InjectionRequest;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.InterceptorBinding;
+import com.google.inject.spi.LinkedKeyBinding;
+import com.google.inject.spi.MembersInjectorLookup;
+import com.google.inject.spi.Message;
+import com.google.inject.spi.PrivateElements;
+import com.google.inject.spi.ProviderBinding;
+import com.google.inject.spi.ProviderKeyBinding;
+import com.google.inject.spi.ProvidesMethodBinding;
+import com.google.inject.spi.ProvidesMethodTargetVisitor;
+import com.google.inject.spi.ProvisionListenerBinding;
+import com.google.inject.spi.StaticInjectionRequest;
+import com.google.inject.spi.TypeListenerBinding;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Compiles modules ahead of time into the Java source of a {@link CompiledInjector}. The generated
+ * injector calls constructors, {@literal @}{@code Provides} methods and injectable members
+ * directly. Creating it involves no reflection, no binding analysis and no just-in-time bindings,
+ * and getting an instance takes no injector-wide lock. This suits command line tools and
+ * short-lived jobs whose object graph is known when they are built:
+ *
+ * <pre>
+ * String source = InjectorCompiler.generateSource("com.example.AppInjector", new AppModule());
+ * // ...compile source as part of the build...
+ * Injector injector = new AppInjector();</pre>
+ *
+ * <p>The modules are analyzed by an injector in {@link Stage#TOOL tool stage}. Every explicit
+ * binding and everything it depends on is compiled, and anything that cannot be expressed in
+ * source is reported as a {@link ConfigurationException}. The supported subset is:
+ * <ul>
+ *   <li>Constructor bindings, including just-in-time ones, with field and method injection.
+ *   <li>Linked bindings and bindings to provider classes.
+ *   <li>{@literal @}{@code Provides} methods. The generated injector instantiates their modules
+ *       with a constructor that takes no arguments.
+ *   <li>Instance and constant bindings whose values are strings, primitives, enums or classes.
+ *   <li>Injection of {@code Provider}, {@code Injector}, {@code Stage} and {@code Logger}.
+ *   <li>Unscoped bindings, singletons and eager singletons.
+ * </ul>
+ *
+ * <p>Method interception, type and provision listeners, custom scopes, private modules, requested
+ * and static injection, and circular dependencies are not supported. Constructors and members
+ * must be visible to the generated class: either public, or package-private in the same package
+ * and loaded by the same class loader.
+ *
+ * <p>Compiled injectors do not check for null values the way Guice does, and report errors thrown
+ * by user code unwrapped, or wrapped in a {@link com.google.inject.ProvisionException} if they
+ * are checked exceptions.
+ *
+ * @since 4.0
+ */
+public final class InjectorCompiler {
+
+  private static final Key<Injector> INJECTOR_KEY = Key.get(Injector.class);
+  private static final Key<Stage> STAGE_KEY = Key.get(Stage.class);
+  private static final Key<Logger> LOGGER_KEY = Key.get(Logger.class);
+
+  /** Keys Guice binds in every injector. They are compiled only when something injects them. */
+  private static final ImmutableSet<Key<?>> BUILT_IN_KEYS
+      = ImmutableSet.<Key<?>>of(INJECTOR_KEY, STAGE_KEY, LOGGER_KEY);
+
+  private final String packageName;
+  private final String simpleName;
+  private final Stage stage;
+  private final Injector injector;
+
+  /** Index of each compiled key. Keys are indexed in the order they are reached. */
+  private final Map<Key<?>, Integer> indices = Maps.newLinkedHashMap();
+  private final List<Key<?>> keys = Lists.newArrayList();
+  private final Deque<Key<?>> pending = new ArrayDeque<Key<?>>();
+
+  /** The indices each compiled key calls, not counting providers. Used to detect cycles. */
+  private final List<Set<Integer>> directDependencies = Lists.newArrayList();
+
+  private final Map<Object, String> moduleFields = Maps.newIdentityHashMap();
+  private final List<Integer> eagerSingletons = Lists.newArrayList();
+  private final StringBuilder fields = new StringBuilder();
+  private final StringBuilder methods = new StringBuilder();
+  private final List<Message> errors = Lists.newArrayList();
+
+  private InjectorCompiler(String className, Stage stage, List<Element> elements) {
+    int lastDot = className.lastIndexOf('.');
+    this.packageName = lastDot == -1 ? "" : className.substring(0, lastDot);
+    this.simpleName = className.substring(lastDot + 1);
+    this.stage = stage;
+
+    ElementVisitor<Void> unsupportedElements = new DefaultElementVisitor<Void>() {
+      @Override public Void visit(InterceptorBinding interceptorBinding) {
+        return unsupported(interceptorBinding, "method interception");
+      }
+
+      @Override public Void visit(TypeListenerBinding binding) {
+        return unsupported(binding, "type listeners");
+      }
+
+      @Override public Void visit(ProvisionListenerBinding binding) {
+        return unsupported(binding, "provision listeners");
+      }
+
+      @Override public Void visit(InjectionRequest<?> request) {
+        return unsupported(request, "requested injection");
+      }
+
+      @Override public Void visit(StaticInjectionRequest request) {
+        return unsupported(request, "static injection");
+      }
+
+      @Override public <T> Void visit(MembersInjectorLookup<T> lookup) {
+        return unsupported(lookup, "members injectors");
+      }
+
+      @Override public Void visit(PrivateElements privateElements) {
+        return unsupported(privateElements, "private modules");
+      }
+
+      private Void unsupported(Element element, String feature) {
+        errors.add(new Message(element.getSource(),
+            "Compiled injectors do not support " + feature + "."));
+        return null;
+      }
+    };
+    for (Element element : elements) {
+      element.acceptVisitor(unsupportedElements);
+    }
+
+    this.injector = Guice.createInjector(Stage.TOOL, Elements.getModule(elements));
+  }
+
+  /**
+   * Returns the source of a compiled injector for {@code modules}. The injector behaves like one
+   * created in {@link Stage#DEVELOPMENT development stage}.
+   *
+   * @param className the fully qualified name of the class to generate
+   * @throws CreationException if {@code modules} are not valid
+   * @throws ConfigurationException if the bindings cannot be compiled
+   */
+  public static String generateSource(String className, Module... modules) {
+    return generateSource(className, Stage.DEVELOPMENT, Arrays.asList(modules));
+  }
+
+  /**
+   * Returns the source of a compiled injector for {@code modules}. In {@link Stage#PRODUCTION
+   * production stage}, all singletons are created by the compiled injector's constructor.
+   *
+   * @param className the fully qualified name of the class to generate
+   * @throws CreationException if {@code modules} are not valid
+   * @throws ConfigurationException if the bindings cannot be compiled
+   */
+  public static String generateSource(
+      String className, Stage stage, Iterable<? extends Module> modules) {
+    checkArgument(stage != Stage.TOOL, "Compiled injectors cannot run in %s stage", stage);
+    return new InjectorCompiler(className, stage, Elements.getElements(Stage.TOOL, modules))
+        .generate();
+  }
+
+  /**
+   * Writes the source of a compiled injector to standard out. The first argument is the name of
+   * the class to generate, the others name module classes that have public constructors without
+   * arguments.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println("Usage: InjectorCompiler <class name> <module class>...");
+      System.exit(1);
+    }
+    List<Module> modules = Lists.newArrayList();
+    for (String moduleClass : Arrays.asList(args).subList(1, args.length)) {
+      modules.add((Module) Class.forName(moduleClass).getConstructor().newInstance());
+    }
+    System.out.print(generateSource(args[0], Stage.DEVELOPMENT, modules));
+  }
+
+  private String generate() {
+    for (Key<?> key : injector.getBindings().keySet()) {
+      if (!BUILT_IN_KEYS.contains(key)) {
+        indexOf(key);
+      }
+    }
+    while (!pending.isEmpty()) {
+      compile(pending.removeFirst());
+    }
+    checkForCycles();
+
+    if (!errors.isEmpty()) {
+      throw new ConfigurationException(errors);
+    }
+    return writeClass();
+  }
+
+  /** Returns the index of {@code key}, scheduling it to be compiled if it is new. */
+  private int indexOf(Key<?> key) {
+    Integer index = indices.get(key);
+    if (index == null) {
+      index = keys.size();
+      indices.put(key, index);
+      keys.add(key);
+      directDependencies.add(Sets.<Integer>newLinkedHashSet());
+      pending.add(key);
+    }
+    return index;
+  }
+
+  private void compile(Key<?> key) {
+    Binding<?> binding;
+    try {
+      binding = injector.getBinding(key);
+    } catch (ConfigurationException e) {
+      errors.addAll(e.getErrorMessages());
+      return;
+    }
+
+    int index = indices.get(key);
+    try {
+      String type = typeName(key.getTypeLiteral().getType());
+      Body body = new Body(index);
+      binding.acceptTargetVisitor(body);
+      Scoping scoping = body.constant ? Scoping.NONE : binding.acceptScopingVisitor(SCOPING);
+      if (scoping == null) {
+        throw new UncompilableException("it is scoped in " + binding.acceptScopingVisitor(
+            new BindingScopingVisitor<Object>() {
+              public Object visitEagerSingleton() { return Scopes.SINGLETON; }
+              public Object visitScope(Scope scope) { return scope; }
+              public Object visitScopeAnnotation(Class<? extends Annotation> scopeAnnotation) {
+                return "@" + scopeAnnotation.getName();
+              }
+              public Object visitNoScoping() { return Scopes.NO_SCOPE; }
+            }) + ", and only singletons are supported.");
+      }
+      writeMethod(index, key, type, scoping, body);
+    } catch (UncompilableException e) {
+      errors.add(new Message(binding.getSource(),
+          String.format("Cannot compile %s because %s", key, e.getMessage())));
+    }
+  }
+
+  private void writeMethod(int index, Key<?> key, String type, Scoping scoping, Body body) {
+    methods.append("\n  // ").append(key).append("\n");
+    if (scoping == Scoping.NONE) {
+      methods.append("  private ").append(type).append(" get").append(index).append("() {\n");
+      body.writeTo(methods);
+      methods.append("  }\n");
+      return;
+    }
+
+    if (scoping == Scoping.EAGER_SINGLETON || stage == Stage.PRODUCTION) {
+      eagerSingletons.add(index);
+    }
+    // each singleton has its own lock, so unrelated singletons never wait for each other
+    fields.append("  private volatile ").append(type)
+        .append(" singleton").append(index).append(";\n")
+        .append("  private final Object lock").append(index).append(" = new Object();\n");
+    methods.append("  private ").append(type).append(" get").append(index).append("() {\n")
+        .append("    ").append(type).append(" result = singleton").append(index).append(";\n")
+        .append("    if (result == null) {\n")
+        .append("      synchronized (lock").append(index).append(") {\n")
+        .append("        result = singleton").append(index).append(";\n")
+        .append("        if (result == null) {\n")
+        .append("          singleton").append(index)
+            .append(" = result = create").append(index).append("();\n")
+        .append("        }\n")
+        .append("      }\n")
+        .append("    }\n")
+        .append("    return result;\n")
+        .append("  }\n")
+        .append("\n")
+        .append("  private ").append(type).append(" create").append(index).append("() {\n");
+    body.writeTo(methods);
+    methods.append("  }\n");
+  }
+
+  private String writeClass() {
+    StringBuilder out = new StringBuilder();
+    out.append("// Generated by ").append(InjectorCompiler.class.getName())
+        .append(". Do not edit.\n");
+    if (!packageName.isEmpty()) {
+      out.append("package ").append(packageName).append(";\n");
+    }
+    out.append("\n")
+        .append("public final class ").append(simpleName)
+        .append(" extends ").append(CompiledInjector.class.getName()).append(" {\n")
+        .append("\n")
+        .append("  private static final com.google.inject.Key<?>[] KEYS = {\n");
+    for (Key<?> key : keys) {
+      out.append("      ").append(keyExpression(key)).append(",\n");
+    }
+    out.append("  };\n");
+    if (fields.length() > 0) {
+      out.append("\n").append(fields);
+    }
+
+    out.append("\n")
+        .append("  public ").append(simpleName).append("() {\n")
+        .append("    super(KEYS);\n");
+    for (int index : eagerSingletons) {
+      out.append("    get").append(index).append("();\n");
+    }
+    out.append("  }\n")
+        .append("\n")
+        .append("  @Override protected Object provide(int index) {\n")
+        .append("    switch (index) {\n");
+    for (int index = 0; index < keys.size(); index++) {
+      out.append("      case ").append(index).append(":\n")
+          .append("        return get").append(index).append("();\n");
+    }
+    out.append("      default:\n")
+        .append("        throw new IllegalArgumentException(\"No key with index \" + index);\n")
+        .append("    }\n")
+        .append("  }\n")
+        .append(methods)
+        .append("}\n");
+    return out.toString();
+  }
+
+  /**
+   * Returns an expression that creates {@code key}, or {@code null} if its annotation cannot be
+   * written as source. Such keys can only be injected as dependencies.
+   */
+  private String keyExpression(Key<?> key) {
+    Type type = key.getTypeLiteral().getType();
+    String typeLiteral = type instanceof Class
+        ? typeName(type) + ".class"
+        : "new com.google.inject.TypeLiteral<" + typeName(type) + ">() {}";
+
+    Class<? extends Annotation> annotationType = key.getAnnotationType();
+    if (annotationType == null) {
+      return "com.google.inject.Key.get(" + typeLiteral + ")";
+    } else if (key.getAnnotation() instanceof Named) {
+      return "com.google.inject.Key.get(" + typeLiteral + ", com.google.inject.name.Names.named("
+          + quote(((Named) key.getAnnotation()).value()) + "))";
+    } else if (annotationType.getDeclaredMethods().length == 0) {
+      try {
+        return "com.google.inject.Key.get(" + typeLiteral + ", " + typeName(annotationType)
+            + ".class)";
+      } catch (UncompilableException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /** Reports circular dependencies, which Guice would resolve with proxies. */
+  private void checkForCycles() {
+    int[] state = new int[keys.size()]; // 0 = unvisited, 1 = on the path, 2 = done
+    for (int index = 0; index < keys.size(); index++) {
+      checkForCycles(index, state, Lists.<Integer>newArrayList());
+    }
+  }
+
+  private void checkForCycles(int index, int[] state, List<Integer> path) {
+    if (state[index] == 2) {
+      return;
+    } else if (state[index] == 1) {
+      List<Key<?>> cycle = Lists.newArrayList();
+      for (int i : path.subList(path.indexOf(index), path.size())) {
+        cycle.add(keys.get(i));
+      }
+      cycle.add(keys.get(index));
+      errors.add(new Message(String.format("Cannot compile the circular dependency %s. Compiled "
+          + "injectors do not create circular proxies; inject a Provider instead.", cycle)));
+      return;
+    }
+
+    state[index] = 1;
+    path.add(index);
+    for (int dependency : directDependencies.get(index)) {
+      checkForCycles(dependency, state, path);
+    }
+    path.remove(path.size() - 1);
+    state[index] = 2;
+  }
+
+  private enum Scoping { NONE, SINGLETON, EAGER_SINGLETON }
+
+  /** Returns how a binding is scoped, or {@code null} if its scope is not supported. */
+  private static final BindingScopingVisitor<Scoping> SCOPING
+      = new BindingScopingVisitor<Scoping>() {
+    public Scoping visitEagerSingleton() {
+      return Scoping.EAGER_SINGLETON;
+    }
+
+    public Scoping visitScope(Scope scope) {
+      return scope == Scopes.SINGLETON ? Scoping.SINGLETON : null;
+    }
+
+    public Scoping visitScopeAnnotation(Class<? extends Annotation> scopeAnnotation) {
+      return scopeAnnotation == Singleton.class || scopeAnnotation == javax.inject.Singleton.class
+          ? Scoping.SINGLETON
+          : null;
+    }
+
+    public Scoping visitNoScoping() {
+      return Scoping.NONE;
+    }
+  };
+
+  /** Writes the statements that create an instance for one binding. */
+  private class Body extends DefaultBindingTargetVisitor<Object, Void>
+      implements ProvidesMethodTargetVisitor<Object, Void> {
+    private final int index;
+    private final List<String> statements = Lists.newArrayList();
+
+    /** True if the binding's value is a literal, which needs no scoping. */
+    boolean constant;
+
+    /** True if the statements call user code that declares checked exceptions. */
+    private boolean throwsCheckedExceptions;
+
+    Body(int index) {
+      this.index = index;
+    }
+
+    @Override public Void visit(ConstructorBinding<?> binding) {
+      InjectionPoint constructorPoint = binding.getConstructor();
+      Constructor<?> constructor = (Constructor<?>) constructorPoint.getMember();
+      checkAccessible(constructor);
+      declares(constructor.getExceptionTypes());
+      String type = typeName(constructorPoint.getDeclaringType().getType());
+      String newInstance
+          = "new " + type + "(" + arguments(constructorPoint.getDependencies()) + ")";
+      if (binding.getInjectableMembers().isEmpty()) {
+        statements.add("return " + newInstance + ";");
+        return null;
+      }
+
+      statements.add(type + " instance = " + newInstance + ";");
+      for (InjectionPoint point : binding.getInjectableMembers()) {
+        if (point.isOptional() && !isResolvable(point.getDependencies())) {
+          continue;
+        }
+
+        Member member = point.getMember();
+        checkAccessible(member);
+        String target = member.getDeclaringClass() == constructor.getDeclaringClass()
+            ? "instance"
+            : "((" + typeName(member.getDeclaringClass()) + ") instance)";
+        if (member instanceof Field) {
+          if (Modifier.isFinal(member.getModifiers())) {
+            throw new UncompilableException("it injects the final field " + member);
+          }
+          statements.add(target + "." + member.getName() + " = "
+              + dependency(point.getDependencies().get(0)) + ";");
+        } else {
+          declares(((Method) member).getExceptionTypes());
+          statements.add(target + "." + member.getName() + "("
+              + arguments(point.getDependencies()) + ");");
+        }
+      }
+      statements.add("return instance;");
+      return null;
+    }
+
+    public Void visit(ProvidesMethodBinding<?> binding) {
+      Method method = binding.getMethod();
+      checkAccessible(method);
+      declares(method.getExceptionTypes());
+      String target = Modifier.isStatic(method.getModifiers())
+          ? typeName(method.getDeclaringClass())
+          : module(binding.getEnclosingInstance());
+      statements.add("return " + target + "." + method.getName() + "("
+          + arguments(parameterDependencies(binding)) + ");");
+      return null;
+    }
+
+    @Override public Void visit(LinkedKeyBinding<?> binding) {
+      statements.add("return " + call(binding.getLinkedKey()) + ";");
+      return null;
+    }
+
+    @Override public Void visit(ProviderKeyBinding<?> binding) {
+      statements.add("return " + call(binding.getProviderKey()) + ".get();");
+      return null;
+    }
+
+    @Override public Void visit(ProviderBinding<?> binding) {
+      statements.add("return " + provider(binding.getProvidedKey()) + ";");
+      return null;
+    }
+
+    @Override public Void visit(InstanceBinding<?> binding) {
+      constant = true;
+      statements.add("return " + literal(binding.getInstance()) + ";");
+      return null;
+    }
+
+    @Override public Void visit(ConvertedConstantBinding<?> binding) {
+      constant = true;
+      statements.add("return " + literal(binding.getValue()) + ";");
+      return null;
+    }
+
+    @Override protected Void visitOther(Binding<?> binding) {
+      throw new UncompilableException("it is bound to " + binding
+          + ", which cannot be written as source.");
+    }
+
+    /** Returns an expression that calls the method for {@code key}. */
+    private String call(Key<?> key) {
+      int dependency = indexOf(key);
+      directDependencies.get(index).add(dependency);
+      return "get" + dependency + "()";
+    }
+
+    private String arguments(List<Dependency<?>> dependencies) {
+      StringBuilder result = new StringBuilder();
+      for (Dependency<?> dependency : dependencies) {
+        if (result.length() > 0) {
+          result.append(", ");
+        }
+        result.append(dependency(dependency));
+      }
+      return result.toString();
+    }
+
+    private String dependency(Dependency<?> dependency) {
+      Key<?> key = dependency.getKey();
+      Class<?> rawType = key.getTypeLiteral().getRawType();
+      if (rawType == Provider.class) {
+        return provider(providedKey(key));
+      } else if (rawType == MembersInjector.class) {
+        throw new UncompilableException("it injects " + key
+            + ", and members injectors are not supported.");
+      } else if (key.equals(INJECTOR_KEY)) {
+        return "this";
+      } else if (key.equals(STAGE_KEY)) {
+        return Stage.class.getName() + "." + stage.name();
+      } else if (key.equals(LOGGER_KEY)) {
+        InjectionPoint injectionPoint = dependency.getInjectionPoint();
+        String name = injectionPoint == null
+            ? ""
+            : injectionPoint.getMember().getDeclaringClass().getName();
+        return Logger.class.getName() + ".getLogger(" + quote(name) + ")";
+      }
+      return call(key);
+    }
+
+    /** Returns an expression for a provider of {@code key}, which may be called later. */
+    private String provider(Key<?> key) {
+      return "this.<" + typeName(key.getTypeLiteral().getType()) + ">provider("
+          + indexOf(key) + ")";
+    }
+
+    private String module(Object instance) {
+      String field = moduleFields.get(instance);
+      if (field == null) {
+        Class<?> moduleClass = instance.getClass();
+        Constructor<?> constructor;
+        try {
+          constructor = moduleClass.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+          throw new UncompilableException(moduleClass.getName()
+              + " has no constructor without arguments.");
+        }
+        checkAccessible(constructor);
+        declares(constructor.getExceptionTypes());
+
+        field = "module" + moduleFields.size();
+        moduleFields.put(instance, field);
+        String type = typeName(moduleClass);
+        fields.append("  private final ").append(type).append(" ").append(field)
+            .append(" = new ").append(type).append("();\n");
+      }
+      return field;
+    }
+
+    private void declares(Class<?>[] exceptionTypes) {
+      for (Class<?> exceptionType : exceptionTypes) {
+        if (!RuntimeException.class.isAssignableFrom(exceptionType)
+            && !Error.class.isAssignableFrom(exceptionType)) {
+          throwsCheckedExceptions = true;
+        }
+      }
+    }
+
+    void writeTo(StringBuilder out) {
+      String indent = throwsCheckedExceptions ? "      " : "    ";
+      if (throwsCheckedExceptions) {
+        out.append("    try {\n");
+      }
+      for (String statement : statements) {
+        out.append(indent).append(statement).append("\n");
+      }
+      if (throwsCheckedExceptions) {
+        out.append("    } catch (RuntimeException e) {\n")
+            .append("      throw e;\n")
+            .append("    } catch (Exception e) {\n")
+            .append("      throw new com.google.inject.ProvisionException(")
+                .append(quote("Error provisioning " + keys.get(index))).append(", e);\n")
+            .append("    }\n");
+      }
+    }
+  }
+
+  /** Returns the key provided by a key of type {@code Provider<T>}. */
+  private static Key<?> providedKey(Key<?> providerKey) {
+    Type providerType = providerKey.getTypeLiteral().getType();
+    if (!(providerType instanceof ParameterizedType)) {
+      throw new UncompilableException(
+          "it injects " + providerKey + ", which is not parameterized.");
+    }
+    return providerKey.ofType(((ParameterizedType) providerType).getActualTypeArguments()[0]);
+  }
+
+  /**
+   * Returns the dependencies of a provider method's parameters, in order. Unlike the binding's
+   * dependencies, these include repeated keys once for each parameter.
+   */
+  private static List<Dependency<?>> parameterDependencies(ProvidesMethodBinding<?> binding) {
+    Method method = binding.getMethod();
+    List<TypeLiteral<?>> parameterTypes
+        = TypeLiteral.get(binding.getEnclosingInstance().getClass()).getParameterTypes(method);
+    Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+    ImmutableList.Builder<Dependency<?>> dependencies = ImmutableList.builder();
+    for (int i = 0; i < parameterTypes.size(); i++) {
+      Annotation bindingAnnotation = null;
+      for (Annotation annotation : parameterAnnotations[i]) {
+        Class<? extends Annotation> annotationType = annotation.annotationType();
+        if (annotationType.isAnnotationPresent(BindingAnnotation.class)
+            || annotationType.isAnnotationPresent(javax.inject.Qualifier.class)) {
+          bindingAnnotation = annotation;
+        }
+      }
+      Key<?> key = bindingAnnotation == null
+          ? Key.get(parameterTypes.get(i))
+          : Key.get(parameterTypes.get(i), bindingAnnotation);
+      dependencies.add(Dependency.get(key));
+    }
+    return dependencies.build();
+  }
+
+  /** Returns true if an optional injection point's dependencies can all be injected. */
+  private boolean isResolvable(List<Dependency<?>> dependencies) {
+    for (Dependency<?> dependency : dependencies) {
+      Key<?> key = dependency.getKey();
+      Key<?> boundKey = key.getTypeLiteral().getRawType() == Provider.class
+          ? providedKey(key)
+          : key;
+      try {
+        injector.getBinding(boundKey);
+      } catch (ConfigurationException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the source name of {@code type}, which must be visible to the generated class. */
+  private String typeName(Type type) {
+    if (type instanceof Class) {
+      Class<?> rawType = (Class<?>) type;
+      if (rawType.isArray()) {
+        return typeName(rawType.getComponentType()) + "[]";
+      } else if (rawType.isPrimitive()) {
+        return rawType.getName();
+      }
+      checkAccessible(rawType);
+      return rawType.getCanonicalName();
+
+    } else if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      StringBuilder result = new StringBuilder(typeName(parameterizedType.getRawType()));
+      result.append("<");
+      Type[] arguments = parameterizedType.getActualTypeArguments();
+      for (int i = 0; i < arguments.length; i++) {
+        result.append(i == 0 ? "" : ", ").append(typeName(arguments[i]));
+      }
+      return result.append(">").toString();
+
+    } else if (type instanceof GenericArrayType) {
+      return typeName(((GenericArrayType) type).getGenericComponentType()) + "[]";
+
+    } else if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      Type[] lowerBounds = wildcardType.getLowerBounds();
+      Type[] upperBounds = wildcardType.getUpperBounds();
+      if (lowerBounds.length == 1) {
+        return "? super " + typeName(lowerBounds[0]);
+      } else if (upperBounds[0] == Object.class) {
+        return "?";
+      }
+      return "? extends " + typeName(upperBounds[0]);
+    }
+
+    throw new UncompilableException("the type " + type + " cannot be written as source.");
+  }
+
+  private void checkAccessible(Class<?> type) {
+    if (type.getCanonicalName() == null) {
+      throw new UncompilableException(type + " is a local or anonymous class.");
+    }
+    for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+      checkAccessible(c, c.getModifiers());
+    }
+  }
+
+  private void checkAccessible(Member member) {
+    checkAccessible(member.getDeclaringClass());
+    checkAccessible(member, member.getModifiers());
+  }
+
+  private void checkAccessible(Object classOrMember, int modifiers) {
+    if (Modifier.isPrivate(modifiers)) {
+      throw new UncompilableException(classOrMember + " is private.");
+    }
+    Class<?> declaringClass = classOrMember instanceof Class
+        ? (Class<?>) classOrMember
+        : ((Member) classOrMember).getDeclaringClass();
+    if (!Modifier.isPublic(modifiers) && !packageName.equals(packageName(declaringClass))) {
+      throw new UncompilableException(classOrMember + " is not public.");
+    }
+  }
+
+  private static String packageName(Class<?> type) {
+    String name = type.getName();
+    int lastDot = name.lastIndexOf('.');
+    return lastDot == -1 ? "" : name.substring(0, lastDot);
+  }
+
+  /** Returns a literal for a constant value. */
+  private String literal(Object value) {
+    if (value instanceof String) {
+      return quote((String) value);
+    } else if (value instanceof Character) {
+      char c = (Character) value;
+      return c == '\'' ? "'\\''" : "'" + escape(c) + "'";
+    } else if (value instanceof Integer || value instanceof Boolean) {
+      return value.toString();
+    } else if (value instanceof Long) {
+      return value + "L";
+    } else if (value instanceof Short) {
+      return "(short) " + value;
+    } else if (value instanceof Byte) {
+      return "(byte) " + value;
+    } else if (value instanceof Float) {
+      float f = (Float) value;
+      return Float.isNaN(f) || Float.isInfinite(f)
+          ? "java.lang.Float." + nonFiniteConstant(f)
+          : value + "f";
+    } else if (value instanceof Double) {
+      double d = (Double) value;
+      return Double.isNaN(d) || Double.isInfinite(d)
+          ? "java.lang.Double." + nonFiniteConstant(d)
+          : value + "d";
+    } else if (value instanceof Enum) {
+      Enum<?> constant = (Enum<?>) value;
+      return typeName(constant.getDeclaringClass()) + "." + constant.name();
+    } else if (value instanceof Class) {
+      return typeName((Class<?>) value) + ".class";
+    }
+    throw new UncompilableException("it is bound to an instance of " + value.getClass().getName()
+        + ", and only strings, primitives, enums and classes can be written as source.");
+  }
+
+  private static String nonFiniteConstant(double value) {
+    return Double.isNaN(value) ? "NaN" : value > 0 ? "POSITIVE_INFINITY" : "NEGATIVE_INFINITY";
+  }
+
+  private static String quote(String value) {
+    StringBuilder result = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      result.append(c == '"' ? "\\\"" : escape(c));
+    }
+    return result.append("\"").toString();
+  }
+
+  private static String escape(char c) {
+    switch (c) {
+      case '\\': return "\\\\";
+      case '\n': return "\\n";
+      case '\r': return "\\r";
+      case '\t': return "\\t";
+      default:
+        return c < 0x20 || c > 0x7e ? String.format("\\u%04x", (int) c) : String.valueOf(c);
+    }
+  }
+
+  /** Thrown when a binding cannot be expressed as source. The message completes the sentence. */
+  private static class UncompilableException extends RuntimeException {
+    private static final long serialVersionUID = 0;
+
+    UncompilableException(String message) {
+      super(message);
+    }
+  }
+}
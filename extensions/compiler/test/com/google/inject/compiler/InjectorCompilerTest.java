@@ -0,0 +1,401 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.compiler;
+
+import static com.google.inject.Asserts.assertContains;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.inject.AbstractModule;
+import com.google.inject.ConfigurationException;
+import com.google.inject.CreationException;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.ProvisionException;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles the generated injectors with the system Java compiler and checks that they provide the
+ * same graph as Guice would.
+ */
+public class InjectorCompilerTest extends TestCase {
+
+  private static final String CLASS_NAME = "compiled.TestInjector";
+
+  private static final AtomicInteger constructed = new AtomicInteger();
+
+  @Override protected void setUp() throws Exception {
+    super.setUp();
+    constructed.set(0);
+  }
+
+  public void testConstructorFieldAndMethodInjection() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new AbstractModule() {
+      @Override protected void configure() {
+        bind(Service.class).to(ServiceImpl.class);
+        bind(Client.class);
+        bindConstant().annotatedWith(Names.named("greeting")).to("hello");
+      }
+    });
+
+    Client client = injector.getInstance(Client.class);
+    assertEquals("hello", client.service.greet());
+    assertEquals("hello", client.greeting);
+    assertTrue(client.method.service instanceof ServiceImpl);
+    assertEquals(MethodInjected.class.getName(), client.method.logger.getName());
+    assertSame(injector, client.method.injector);
+    assertNotSame(client, injector.getInstance(Client.class));
+    assertEquals("hello", injector.getInstance(Key.get(String.class, Names.named("greeting"))));
+  }
+
+  public void testSingletonsAndProviders() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new AbstractModule() {
+      @Override protected void configure() {
+        bind(Service.class).to(ServiceImpl.class).in(Singleton.class);
+        bind(ProviderClient.class);
+        bindConstant().annotatedWith(Names.named("greeting")).to("hi");
+      }
+    });
+
+    assertEquals(0, constructed.get());
+    Service service = injector.getInstance(Service.class);
+    assertSame(service, injector.getInstance(Service.class));
+    assertSame(service, injector.getProvider(Service.class).get());
+    assertEquals(1, constructed.get());
+
+    ProviderClient client = injector.getInstance(ProviderClient.class);
+    assertSame(service, client.serviceProvider.get());
+    assertNotSame(client.implProvider.get(), client.implProvider.get());
+  }
+
+  public void testEagerSingletonsInProduction() throws Exception {
+    Module module = new AbstractModule() {
+      @Override protected void configure() {
+        bind(ServiceImpl.class).in(Singleton.class);
+        bindConstant().annotatedWith(Names.named("greeting")).to("hi");
+      }
+    };
+
+    compile(Stage.DEVELOPMENT, module);
+    assertEquals(0, constructed.get());
+
+    Injector injector = compile(Stage.PRODUCTION, module);
+    assertEquals(1, constructed.get());
+    injector.getInstance(ServiceImpl.class);
+    assertEquals(1, constructed.get());
+  }
+
+  public void testProvidesMethodsAndProviderClasses() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new ProvidesModule());
+
+    assertEquals("hello, world", injector.getInstance(Key.get(String.class, Names.named("both"))));
+    assertEquals(Integer.valueOf(42), injector.getInstance(Integer.class));
+    assertEquals("provided", injector.getInstance(Service.class).greet());
+  }
+
+  public void testCheckedExceptionsAreWrapped() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new AbstractModule() {
+      @Override protected void configure() {
+        bind(Throwing.class);
+      }
+    });
+
+    try {
+      injector.getInstance(Throwing.class);
+      fail();
+    } catch (ProvisionException expected) {
+      assertTrue(expected.getCause() instanceof IOException);
+    }
+  }
+
+  public void testUnsupportedBindingsAreReported() {
+    try {
+      InjectorCompiler.generateSource(CLASS_NAME, new AbstractModule() {
+        @Override protected void configure() {
+          bind(Object.class).toInstance(new Object());
+          bind(Service.class).to(HiddenService.class);
+        }
+      });
+      fail();
+    } catch (ConfigurationException expected) {
+      assertContains(expected.getMessage(),
+          "Cannot compile Key[type=java.lang.Object, annotation=[none]] because it is bound to "
+              + "an instance of java.lang.Object");
+      assertContains(expected.getMessage(), HiddenService.class.getName() + " is not public.");
+    }
+  }
+
+  public void testCircularDependenciesAreReported() {
+    try {
+      InjectorCompiler.generateSource(CLASS_NAME, new AbstractModule() {
+        @Override protected void configure() {
+          bind(Chicken.class);
+        }
+      });
+      fail();
+    } catch (ConfigurationException expected) {
+      assertContains(expected.getMessage(), "Cannot compile the circular dependency",
+          Chicken.class.getName(), Egg.class.getName(), "inject a Provider instead");
+    }
+  }
+
+  public void testUnknownKeysAndUnsupportedMethods() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new AbstractModule() {
+      @Override protected void configure() {
+        bind(ServiceImpl.class);
+        bindConstant().annotatedWith(Names.named("greeting")).to("hi");
+      }
+    });
+
+    try {
+      injector.getInstance(Client.class);
+      fail();
+    } catch (ConfigurationException expected) {
+      assertContains(expected.getMessage(), "No implementation for " + Key.get(Client.class)
+          + " was compiled into " + CLASS_NAME);
+    }
+    try {
+      injector.getBinding(ServiceImpl.class);
+      fail();
+    } catch (ConfigurationException expected) {
+      assertContains(expected.getMessage(), "A binding for " + Key.get(ServiceImpl.class)
+          + " is not available from compiled injectors such as " + CLASS_NAME);
+    }
+    assertTrue(injector.getBindings().isEmpty());
+    assertTrue(injector.getAllBindings().isEmpty());
+    assertNull(injector.getExistingBinding(Key.get(ServiceImpl.class)));
+    assertTrue(injector.findBindingsByType(TypeLiteral.get(ServiceImpl.class)).isEmpty());
+    assertTrue(injector.getScopeBindings().isEmpty());
+    assertTrue(injector.getTypeConverterBindings().isEmpty());
+    assertNull(injector.getParent());
+  }
+
+  public void testChildInjectorsDependOnCompiledKeys() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new AbstractModule() {
+      @Override protected void configure() {
+        bind(Service.class).to(ServiceImpl.class).in(Singleton.class);
+        bindConstant().annotatedWith(Names.named("greeting")).to("hi");
+      }
+    });
+
+    Injector child = injector.createChildInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(Client.class);
+      }
+    });
+    Client client = child.getInstance(Client.class);
+    assertSame(injector.getInstance(Service.class), client.service);
+    assertSame(client.service, client.method.service);
+    assertEquals("hi", client.greeting);
+    assertEquals(1, constructed.get());
+    assertSame(child.getParent(), injector.createChildInjector().getParent());
+
+    try {
+      injector.createChildInjector(new AbstractModule() {
+        @Override protected void configure() {
+          bind(Service.class).to(HiddenService.class);
+        }
+      });
+      fail();
+    } catch (CreationException expected) {
+      assertContains(expected.getMessage(),
+          "A binding to " + Service.class.getName() + " was already configured");
+    }
+  }
+
+  public void testSingletonsCreatedByOtherThreadsDoNotWaitForEachOther() throws Exception {
+    Injector injector = compile(Stage.DEVELOPMENT, new AbstractModule() {
+      @Override protected void configure() {
+        bind(ServiceImpl.class).in(Singleton.class);
+        bind(WaitsForOtherThread.class).in(Singleton.class);
+        bindConstant().annotatedWith(Names.named("greeting")).to("hi");
+      }
+    });
+
+    WaitsForOtherThread waiting = injector.getInstance(WaitsForOtherThread.class);
+    assertSame(injector.getInstance(ServiceImpl.class), waiting.createdByOtherThread);
+  }
+
+  private Injector compile(Stage stage, Module... modules) throws Exception {
+    String source
+        = InjectorCompiler.generateSource(CLASS_NAME, stage, ImmutableList.copyOf(modules));
+
+    File directory = File.createTempFile("compiled", "");
+    assertTrue(directory.delete() && directory.mkdir());
+    File sourceFile = new File(directory, "TestInjector.java");
+    Files.write(source, sourceFile, Charsets.UTF_8);
+
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = javac.getStandardFileManager(null, null, null);
+    Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sourceFile);
+    List<String> options = ImmutableList.of(
+        "-d", directory.getPath(), "-classpath", classPath(), "-source", "1.6", "-target", "1.6");
+    assertTrue(source, javac.getTask(null, fileManager, null, options, null, units).call());
+    fileManager.close();
+
+    ClassLoader classLoader
+        = new URLClassLoader(new URL[] { directory.toURI().toURL() }, getClass().getClassLoader());
+    return (Injector) classLoader.loadClass(CLASS_NAME).getConstructor().newInstance();
+  }
+
+  private static String classPath() throws Exception {
+    List<String> entries = Lists.newArrayList();
+    for (Class<?> type : ImmutableList.of(Injector.class, CompiledInjector.class,
+        InjectorCompilerTest.class, javax.inject.Provider.class, ImmutableList.class)) {
+      entries.add(new File(type.getProtectionDomain().getCodeSource().getLocation().toURI())
+          .getPath());
+    }
+    return Joiner.on(File.pathSeparator).join(entries);
+  }
+
+  public interface Service {
+    String greet();
+  }
+
+  public static class ServiceImpl implements Service {
+    private final String greeting;
+
+    @Inject public ServiceImpl(@Named("greeting") String greeting) {
+      this.greeting = greeting;
+      constructed.incrementAndGet();
+    }
+
+    public String greet() {
+      return greeting;
+    }
+  }
+
+  static class HiddenService implements Service {
+    public String greet() {
+      return "hidden";
+    }
+  }
+
+  public static class Client {
+    @Inject public Service service;
+    @Inject @Named("greeting") public String greeting;
+    @Inject(optional = true) public Runnable missing;
+    public MethodInjected method;
+
+    @Inject public void inject(MethodInjected method) {
+      this.method = method;
+    }
+  }
+
+  public static class MethodInjected {
+    public Service service;
+    public Logger logger;
+    public Injector injector;
+
+    @Inject public void inject(Service service, Logger logger, Injector injector) {
+      this.service = service;
+      this.logger = logger;
+      this.injector = injector;
+    }
+  }
+
+  public static class ProviderClient {
+    @Inject public Provider<Service> serviceProvider;
+    @Inject public javax.inject.Provider<ServiceImpl> implProvider;
+  }
+
+  /** Creates another singleton on a second thread, while its own creation is in progress. */
+  public static class WaitsForOtherThread {
+    public volatile ServiceImpl createdByOtherThread;
+
+    @Inject public WaitsForOtherThread(final Provider<ServiceImpl> serviceProvider)
+        throws InterruptedException {
+      Thread thread = new Thread() {
+        @Override public void run() {
+          createdByOtherThread = serviceProvider.get();
+        }
+      };
+      thread.start();
+      thread.join(5000);
+    }
+  }
+
+  public static class ProvidesModule extends AbstractModule {
+    @Override protected void configure() {
+      bind(Service.class).toProvider(ServiceProvider.class);
+    }
+
+    @Provides @Named("greeting") public String provideGreeting() {
+      return "hello";
+    }
+
+    @Provides @Named("both") public String provideBoth(
+        @Named("greeting") String greeting, @Named("greeting") String again, Integer answer) {
+      assertEquals(greeting, again);
+      return greeting + ", world";
+    }
+
+    @Provides public Integer provideAnswer() {
+      return 42;
+    }
+  }
+
+  public static class ServiceProvider implements Provider<Service> {
+    public Service get() {
+      return new Service() {
+        public String greet() {
+          return "provided";
+        }
+      };
+    }
+  }
+
+  public static class Throwing {
+    @Inject public Throwing() throws IOException {
+      throw new IOException();
+    }
+  }
+
+  public static class Chicken {
+    @Inject public Chicken(Egg egg) {}
+  }
+
+  public static class Egg {
+    @Inject public Egg(Chicken chicken) {}
+  }
+}
@@ -20,9 +20,11 @@ import static com.google.inject.multibindings.Element.Type.MAPBINDER;
 import static com.google.inject.multibindings.Multibinder.checkConfiguration;
 import static com.google.inject.multibindings.Multibinder.checkNotNull;
 import static com.google.inject.multibindings.Multibinder.setOf;
+import static com.google.inject.name.Names.named;
 import static com.google.inject.util.Types.newParameterizedType;
 import static com.google.inject.util.Types.newParameterizedTypeWithOwner;
 
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Supplier;
@@ -42,10 +44,12 @@ import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Module;
 import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
 import com.google.inject.TypeLiteral;
 import com.google.inject.binder.LinkedBindingBuilder;
 import com.google.inject.internal.Errors;
 import com.google.inject.multibindings.Indexer.IndexedBinding;
+import com.google.inject.multibindings.Multibinder.FlagModule;
 import com.google.inject.multibindings.Multibinder.RealMultibinder;
 import com.google.inject.spi.BindingTargetVisitor;
 import com.google.inject.spi.Dependency;
@@ -59,13 +63,17 @@ import com.google.inject.spi.Toolable;
 import com.google.inject.util.Types;
 
 import java.lang.annotation.Annotation;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * An API to bind multiple map entries separately, only to later inject them as
@@ -115,6 +123,8 @@ import java.util.Set;
  * <p>Values are resolved at map injection time. If a value is bound to a
  * provider, that provider's get method will be called each time the map is
  * injected (unless the binding is also scoped, or a map of providers is injected).
+ * Use {@link #lazyValues()} to resolve each value only when it is first read
+ * from the injected map instead.
  *
  * <p>Annotations are used to create different maps of the same key/value
  * type. Each distinct annotation gets its own independent map.
@@ -275,6 +285,24 @@ public abstract class MapBinder<K, V> {
    */
   public abstract MapBinder<K, V> permitDuplicates();
 
+  /**
+   * Configures the {@code MapBinder} to resolve values only when they are read. The injected
+   * {@code Map<K, V>} is then a read-only view of the {@code Map<K, Provider<V>>}: a value's
+   * provider is called the first time that value is read from the map (by {@code get()} or by
+   * iterating over its entries or values), and the result is remembered by that map. Injecting
+   * the map itself no longer calls any provider, so a null value is reported when it's read.
+   * <p>
+   * Use this when consumers of a large map only read a few of its values. Maps whose values
+   * are all singletons are built only once whether or not this is used.
+   * <p>
+   * When multiple modules contribute elements to the map, this configuration
+   * option impacts all of them.
+   *
+   * @return this map binder
+   * @since 4.0
+   */
+  public abstract MapBinder<K, V> lazyValues();
+
   /**
    * Returns a binding builder used to add a new entry in the map. Each
    * key must be distinct (and non-null). Bound providers will be evaluated each
@@ -321,6 +349,7 @@ public abstract class MapBinder<K, V> {
     private final Key<Map<K, Set<V>>> multimapKey;
     private final Key<Map<K, Set<Provider<V>>>> providerMultimapKey;
     private final RealMultibinder<Map.Entry<K, Provider<V>>> entrySetBinder;
+    private final Key<Boolean> lazyValuesKey;
     private final Map<K, String> duplicateKeyErrorMessages;
 
     /* the target injector's binder. non-null until initialization, null afterwards */
@@ -329,6 +358,12 @@ public abstract class MapBinder<K, V> {
     private boolean permitDuplicates;
     private ImmutableList<Map.Entry<K, Binding<V>>> mapBindings;
 
+    /** whether every value is a singleton, so that the map can be built once and reused */
+    private boolean singletonValues;
+
+    /** whether values are resolved as they are read. Possibly configured by a different instance */
+    private boolean lazyValues;
+
     private RealMapBinder(Binder binder, TypeLiteral<K> keyType, TypeLiteral<V> valueType,
         Key<Map<K, V>> mapKey, Key<Map<K, Provider<V>>> providerMapKey,
         Key<Map<K, Set<V>>> multimapKey, Key<Map<K, Set<Provider<V>>>> providerMultimapKey,
@@ -341,6 +376,7 @@ public abstract class MapBinder<K, V> {
       this.multimapKey = multimapKey;
       this.providerMultimapKey = providerMultimapKey;
       this.entrySetBinder = (RealMultibinder<Entry<K, Provider<V>>>) entrySetBinder;
+      this.lazyValuesKey = Key.get(Boolean.class, named(mapKey + " has lazy values"));
       this.binder = binder;
       this.duplicateKeyErrorMessages = Maps.newHashMap();
     }
@@ -358,6 +394,13 @@ public abstract class MapBinder<K, V> {
       return this;
     }
 
+    @Override
+    public MapBinder<K, V> lazyValues() {
+      checkConfiguration(!isInitialized(), "MapBinder was already initialized");
+      binder.install(new FlagModule(lazyValuesKey));
+      return this;
+    }
+
     /**
      * This creates two bindings. One for the {@code Map.Entry<K, Provider<V>>}
      * and another for {@code V}.
@@ -416,6 +459,7 @@ public abstract class MapBinder<K, V> {
             || key.equals(multimapKey)
             || key.equals(providerMultimapKey)
             || key.equals(entrySetBinder.getSetKey())
+            || key.equals(lazyValuesKey)
             || matchesValueKey(key);
         }
     }
@@ -459,6 +503,7 @@ public abstract class MapBinder<K, V> {
       @Toolable @Inject void initialize(Injector injector) {
         RealMapBinder.this.binder = null;
         permitDuplicates = entrySetBinder.permitsDuplicates(injector);
+        lazyValues = injector.getBindings().containsKey(lazyValuesKey);
 
         Map<K, Provider<V>> providerMapMutable = new LinkedHashMap<K, Provider<V>>();
         List<Map.Entry<K, Binding<V>>> bindingsMutable = Lists.newArrayList();
@@ -515,6 +560,12 @@ public abstract class MapBinder<K, V> {
 
         providerMap = ImmutableMap.copyOf(providerMapMutable);
         mapBindings = ImmutableList.copyOf(bindingsMutable);
+        singletonValues = RealMultibinder.areSingletons(Lists.transform(mapBindings,
+            new Function<Map.Entry<K, Binding<V>>, Binding<V>>() {
+              @Override public Binding<V> apply(Map.Entry<K, Binding<V>> entry) {
+                return entry.getValue();
+              }
+            }));
       }
 
       @Override public Map<K, Provider<V>> get() {
@@ -530,6 +581,9 @@ public abstract class MapBinder<K, V> {
       private final ImmutableSet<Dependency<?>> dependencies;
       private final Provider<Map<K, Provider<V>>> mapProvider;
 
+      /* the map built by the first successful get(). Only used when singletonValues is true */
+      private volatile ImmutableMap<K, V> singletonMap;
+
       private RealMapProvider(
           ImmutableSet<Dependency<?>> dependencies,
           Provider<Map<K, Provider<V>>> mapProvider) {
@@ -539,19 +593,27 @@ public abstract class MapBinder<K, V> {
       }
 
       @Override public Map<K, V> get() {
-        // We can initialize the internal table efficiently this way and then swap the values
-        // one by one.
-        Map<K, Object> map = new LinkedHashMap<K, Object>(mapProvider.get());
-        for (Entry<K, Object> entry : map.entrySet()) {
-          @SuppressWarnings("unchecked")  // we initialized the entries with providers
-          V value = ((Provider<V>) entry.getValue()).get();
+        ImmutableMap<K, V> map = singletonMap;
+        if (map != null) {
+          return map;
+        }
+        if (lazyValues && !singletonValues) {
+          return new LazyValueMap<K, V>(mapProvider.get());
+        }
+
+        ImmutableMap.Builder<K, V> mapBuilder = ImmutableMap.builder();
+        for (Entry<K, Provider<V>> entry : mapProvider.get().entrySet()) {
+          V value = entry.getValue().get();
           checkConfiguration(value != null,
               "Map injection failed due to null value for key \"%s\"", entry.getKey());
-          entry.setValue(value);
+          mapBuilder.put(entry.getKey(), value);
+        }
+        map = mapBuilder.build();
+        if (singletonValues) {
+          // every value is the same each time, so the same map can be returned.
+          singletonMap = map;
         }
-        @SuppressWarnings("unchecked")  // if we exited the loop then we replaced all Providers
-        Map<K, V> typedMap = (Map<K, V>) map;
-        return Collections.unmodifiableMap(typedMap);
+        return map;
       }
 
       @Override public Set<Dependency<?>> getDependencies() {
@@ -615,6 +677,9 @@ public abstract class MapBinder<K, V> {
       private final Key<Map<K, Set<Provider<V>>>> providerMultimapKey;
       private final Key<Set<Entry<K,Provider<V>>>> entrySetKey;
 
+      /** whether every value is a singleton, so that the multimap can be built once and reused */
+      private boolean singletonValues;
+
       public MultimapBinder(
           Key<Map<K, Set<V>>> multimapKey,
           Key<Map<K, Set<Provider<V>>>> providerMultimapKey,
@@ -667,7 +732,10 @@ public abstract class MapBinder<K, V> {
         @Inject void initialize(Injector injector) {
           Map<K, ImmutableSet.Builder<Provider<V>>> providerMultimapMutable =
               new LinkedHashMap<K, ImmutableSet.Builder<Provider<V>>>();
+          List<Binding<V>> valueBindings = Lists.newArrayList();
           for (Entry<K, Provider<V>> entry : entrySetProvider.get()) {
+            valueBindings.add(
+                injector.getBinding(((ProviderMapEntry<K, V>) entry).getValueKey()));
             if (!providerMultimapMutable.containsKey(entry.getKey())) {
               providerMultimapMutable.put(
                   entry.getKey(), ImmutableSet.<Provider<V>>builder());
@@ -682,6 +750,7 @@ public abstract class MapBinder<K, V> {
             providerMultimapBuilder.put(entry.getKey(), entry.getValue().build());
           }
           providerMultimap = providerMultimapBuilder.build();
+          singletonValues = RealMultibinder.areSingletons(valueBindings);
         }
 
         @Override public Map<K, Set<Provider<V>>> get() {
@@ -698,6 +767,9 @@ public abstract class MapBinder<K, V> {
         private final ImmutableSet<Dependency<?>> dependencies;
         private final Provider<Map<K, Set<Provider<V>>>> multimapProvider;
 
+        /* the multimap built by the first successful get(). Only used if singletonValues is true */
+        private volatile ImmutableMap<K, Set<V>> singletonMultimap;
+
         RealMultimapProvider(
             ImmutableSet<Dependency<?>> dependencies,
             Provider<Map<K, Set<Provider<V>>>> multimapProvider) {
@@ -707,6 +779,11 @@ public abstract class MapBinder<K, V> {
         }
 
         @Override public Map<K, Set<V>> get() {
+          ImmutableMap<K, Set<V>> multimap = singletonMultimap;
+          if (multimap != null) {
+            return multimap;
+          }
+
           ImmutableMap.Builder<K, Set<V>> multimapBuilder = ImmutableMap.builder();
           for (Entry<K, Set<Provider<V>>> entry : multimapProvider.get().entrySet()) {
             K key = entry.getKey();
@@ -719,7 +796,12 @@ public abstract class MapBinder<K, V> {
             }
             multimapBuilder.put(key, valuesBuilder.build());
           }
-          return multimapBuilder.build();
+          multimap = multimapBuilder.build();
+          if (singletonValues) {
+            // every value is the same each time, so the same multimap can be returned.
+            singletonMultimap = multimap;
+          }
+          return multimap;
         }
 
         @Override public Set<Dependency<?>> getDependencies() {
@@ -787,6 +869,84 @@ public abstract class MapBinder<K, V> {
       }
     }
 
+    /**
+     * The {@code Map<K, V>} injected by a mapbinder with {@link #lazyValues}. Each value is
+     * provisioned when it's first read, and then remembered. Threads reading a value for the
+     * first time at once may each provision it, but all of them see the value remembered first.
+     */
+    private static final class LazyValueMap<K, V> extends AbstractMap<K, V> {
+      private final Map<K, Provider<V>> providerMap;
+      private final ConcurrentMap<K, V> values = Maps.newConcurrentMap();
+
+      LazyValueMap(Map<K, Provider<V>> providerMap) {
+        this.providerMap = providerMap;
+      }
+
+      @Override public V get(Object key) {
+        V value = values.get(key);
+        if (value != null) {
+          return value;
+        }
+        Provider<V> provider = providerMap.get(key);
+        if (provider == null) {
+          return null;
+        }
+
+        value = provider.get();
+        if (value == null) {
+          // thrown while the map is read rather than injected, so it's a provisioning failure
+          throw new ProvisionException(
+              String.format("Map injection failed due to null value for key \"%s\"", key));
+        }
+        @SuppressWarnings("unchecked") // providerMap had a provider for it, so it's a K
+        K typedKey = (K) key;
+        V previous = values.putIfAbsent(typedKey, value);
+        return previous != null ? previous : value;
+      }
+
+      @Override public boolean containsKey(Object key) {
+        return providerMap.containsKey(key);
+      }
+
+      @Override public int size() {
+        return providerMap.size();
+      }
+
+      @Override public Set<K> keySet() {
+        return Collections.unmodifiableSet(providerMap.keySet());
+      }
+
+      @Override public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+          @Override public Iterator<Entry<K, V>> iterator() {
+            final Iterator<K> keys = providerMap.keySet().iterator();
+            return new Iterator<Entry<K, V>>() {
+              @Override public boolean hasNext() {
+                return keys.hasNext();
+              }
+
+              @Override public Entry<K, V> next() {
+                K key = keys.next();
+                return Maps.immutableEntry(key, get(key));
+              }
+
+              @Override public void remove() {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+
+          @Override public int size() {
+            return providerMap.size();
+          }
+        };
+      }
+
+      @Override public void clear() {
+        throw new UnsupportedOperationException();
+      }
+    }
+
     private static abstract class RealMapWithExtensionProvider<T>
         extends RealMapBinderProviderWithDependencies<T>
         implements ProviderWithExtensionVisitor<T>, MapBinderBinding<T> {
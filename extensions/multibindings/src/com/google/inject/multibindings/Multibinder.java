@@ -37,6 +37,7 @@ import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Module;
 import com.google.inject.Provider;
+import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
 import com.google.inject.binder.LinkedBindingBuilder;
 import com.google.inject.internal.Errors;
@@ -259,6 +260,12 @@ public abstract class Multibinder<T> {
     /** whether duplicates are allowed. Possibly configured by a different instance */
     private boolean permitDuplicates;
 
+    /** whether every element is a singleton, so that the set can be built once and reused */
+    private boolean singletonElements;
+
+    /* the set built by the first successful get(). Only used when singletonElements is true */
+    private volatile ImmutableSet<T> singletonSet;
+
     private RealMultibinder(Binder binder, TypeLiteral<T> elementType, Key<Set<T>> setKey,
         Key<Collection<Provider<T>>> collectionOfProvidersKey) {
       this.binder = checkNotNull(binder, "binder");
@@ -279,7 +286,7 @@ public abstract class Multibinder<T> {
     }
 
     @Override public Multibinder<T> permitDuplicates() {
-      binder.install(new PermitDuplicatesModule(permitDuplicatesKey));
+      binder.install(new FlagModule(permitDuplicatesKey));
       return this;
     }
 
@@ -313,6 +320,7 @@ public abstract class Multibinder<T> {
       this.bindings = ImmutableList.copyOf(bindings);
       this.dependencies = ImmutableSet.copyOf(dependencies);
       this.permitDuplicates = permitsDuplicates(injector);
+      this.singletonElements = areSingletons(this.bindings);
       this.binder = null;
     }
 
@@ -326,6 +334,15 @@ public abstract class Multibinder<T> {
       return Integer.MAX_VALUE;
     }
 
+    static boolean areSingletons(List<? extends Binding<?>> bindings) {
+      for (Binding<?> binding : bindings) {
+        if (!Scopes.isSingleton(binding)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     boolean permitsDuplicates(Injector injector) {
       return injector.getBindings().containsKey(permitDuplicatesKey);
     }
@@ -342,6 +359,10 @@ public abstract class Multibinder<T> {
     }
 
     public Set<T> get() {
+      ImmutableSet<T> set = singletonSet;
+      if (set != null) {
+        return set;
+      }
       checkConfiguration(isInitialized(), "Multibinder is not initialized");
 
       Map<T, Binding<T>> result = new LinkedHashMap<T, Binding<T>>(mapCapacity(bindings.size()));
@@ -353,7 +374,12 @@ public abstract class Multibinder<T> {
           throw newDuplicateValuesException(result, binding, newValue, duplicateBinding);
         }
       }
-      return ImmutableSet.copyOf(result.keySet());
+      set = ImmutableSet.copyOf(result.keySet());
+      if (singletonElements) {
+        // every element is the same each time, so the same set can be returned.
+        singletonSet = set;
+      }
+      return set;
     }
 
     @SuppressWarnings("unchecked")
@@ -473,14 +499,14 @@ public abstract class Multibinder<T> {
   }
 
   /**
-   * We install the permit duplicates configuration as its own binding, all by itself. This way,
-   * if only one of a multibinder's users remember to call permitDuplicates(), they're still
-   * permitted.
+   * We install options such as the permit duplicates configuration as their own binding, all by
+   * itself. This way, if only one of a multibinder's users remember to call permitDuplicates(),
+   * they're still permitted. Also used by {@link MapBinder#lazyValues}.
    */
-  private static class PermitDuplicatesModule extends AbstractModule {
+  static class FlagModule extends AbstractModule {
     private final Key<Boolean> key;
 
-    PermitDuplicatesModule(Key<Boolean> key) {
+    FlagModule(Key<Boolean> key) {
       this.key = key;
     }
 
@@ -489,8 +515,8 @@ public abstract class Multibinder<T> {
     }
 
     @Override public boolean equals(Object o) {
-      return o instanceof PermitDuplicatesModule
-          && ((PermitDuplicatesModule) o).key.equals(key);
+      return o instanceof FlagModule
+          && ((FlagModule) o).key.equals(key);
     }
 
     @Override public int hashCode() {
@@ -44,6 +44,7 @@ import com.google.inject.Module;
 import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.ProvisionException;
+import com.google.inject.Scopes;
 import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
 import com.google.inject.internal.WeakKeySetUtils;
@@ -71,6 +72,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -314,6 +316,114 @@ public class MapBinderTest extends TestCase {
         providerInstance("num", 1));
   }
 
+  public void testMapBinderMapIsReusedWhenValuesAreSingletons() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        MapBinder<String, Integer> mapbinder =
+            MapBinder.newMapBinder(binder(), String.class, Integer.class);
+        mapbinder.addBinding("a").toInstance(1);
+        mapbinder.addBinding("b").to(Integer.class).in(Scopes.SINGLETON);
+        mapbinder.addBinding("c").toProvider(Providers.of(3)).asEagerSingleton();
+        bind(Integer.class).toInstance(2);
+      }
+    });
+
+    Map<String, Integer> map = injector.getInstance(Key.get(mapOfInteger));
+    assertEquals(mapOf("a", 1, "b", 2, "c", 3), map);
+    assertSame(map, injector.getInstance(Key.get(mapOfInteger)));
+  }
+
+  public void testMapBinderMapIsRebuiltWhenAValueIsUnscoped() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        MapBinder<String, Integer> mapbinder =
+            MapBinder.newMapBinder(binder(), String.class, Integer.class);
+        mapbinder.addBinding("a").toInstance(1);
+        mapbinder.addBinding("b").to(Integer.class);
+        bind(Integer.class).toProvider(Providers.of(2));
+      }
+    });
+
+    Map<String, Integer> map = injector.getInstance(Key.get(mapOfInteger));
+    assertEquals(mapOf("a", 1, "b", 2), map);
+    assertNotSame(map, injector.getInstance(Key.get(mapOfInteger)));
+  }
+
+  public void testMapBinderLazyValuesAreProvisionedWhenRead() {
+    final AtomicInteger provisions = new AtomicInteger();
+    Module lazyModule = new AbstractModule() {
+      @Override protected void configure() {
+        MapBinder<String, Integer> mapbinder =
+            MapBinder.newMapBinder(binder(), String.class, Integer.class);
+        mapbinder.addBinding("a").toProvider(new Provider<Integer>() {
+          @Override public Integer get() {
+            return provisions.incrementAndGet();
+          }
+        });
+        mapbinder.lazyValues();
+      }
+    };
+    Module otherModule = new AbstractModule() {
+      @Override protected void configure() {
+        MapBinder<String, Integer> mapbinder =
+            MapBinder.newMapBinder(binder(), String.class, Integer.class);
+        mapbinder.addBinding("b").toProvider(new Provider<Integer>() {
+          @Override public Integer get() {
+            return provisions.incrementAndGet() * 10;
+          }
+        });
+      }
+    };
+    Injector injector = Guice.createInjector(lazyModule, otherModule);
+
+    Map<String, Integer> map = injector.getInstance(Key.get(mapOfInteger));
+    assertEquals(0, provisions.get());
+    assertEquals(2, map.size());
+    assertTrue(map.containsKey("b"));
+    assertEquals(ImmutableSet.of("a", "b"), map.keySet());
+    assertEquals(0, provisions.get());
+
+    assertEquals(1, map.get("a").intValue());
+    assertEquals(1, map.get("a").intValue());
+    assertNull(map.get("c"));
+    assertEquals(1, provisions.get());
+
+    assertEquals(mapOf("a", 1, "b", 20), map);
+    assertEquals(2, provisions.get());
+
+    Map<String, Integer> otherMap = injector.getInstance(Key.get(mapOfInteger));
+    assertNotSame(map, otherMap);
+    assertEquals(30, otherMap.get("b").intValue());
+
+    try {
+      map.clear();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  public void testMapBinderLazyValuesReportNullValuesWhenRead() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        MapBinder<String, String> mapbinder =
+            MapBinder.newMapBinder(binder(), String.class, String.class);
+        mapbinder.addBinding("a").toInstance("A");
+        mapbinder.addBinding("n").toProvider(Providers.<String>of(null));
+        mapbinder.lazyValues();
+      }
+    });
+
+    Map<String, String> map = injector.getInstance(Key.get(mapOfString));
+    assertEquals("A", map.get("a"));
+    try {
+      map.get("n");
+      fail();
+    } catch (ProvisionException expected) {
+      assertContains(expected.getMessage(),
+          "1) Map injection failed due to null value for key \"n\"");
+    }
+  }
+
   public void testMapBinderMapForbidsDuplicateKeys() {
     Module module = new AbstractModule() {
       @Override protected void configure() {
@@ -470,8 +580,10 @@ public class MapBinderTest extends TestCase {
     };
     Injector injector = Guice.createInjector(ab1c, b2c);
 
-    assertEquals(mapOf("a", setOf("A"), "b", setOf("B1", "B2"), "c", setOf("C")),
-        injector.getInstance(Key.get(mapOfSetOfString)));
+    Map<String, Set<String>> multimap = injector.getInstance(Key.get(mapOfSetOfString));
+    assertEquals(mapOf("a", setOf("A"), "b", setOf("B1", "B2"), "c", setOf("C")), multimap);
+    // every value is an instance, so the multimap is built only once
+    assertSame(multimap, injector.getInstance(Key.get(mapOfSetOfString)));
     assertMapVisitor(Key.get(mapOfString), stringType, stringType, setOf(ab1c, b2c), BOTH, true, 0,
         instance("a", "A"), instance("b", "B1"), instance("b", "B2"), instance("c", "C"));
   }
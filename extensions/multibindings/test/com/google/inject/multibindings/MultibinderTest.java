@@ -92,6 +92,7 @@ public class MultibinderTest extends TestCase {
       new TypeLiteral<Map<String, String>>() {};
   final TypeLiteral<Set<String>> setOfString = new TypeLiteral<Set<String>>() {};
   final TypeLiteral<Set<Integer>> setOfInteger = new TypeLiteral<Set<Integer>>() {};
+  final TypeLiteral<Set<Object>> setOfObject = new TypeLiteral<Set<Object>>() {};
   final TypeLiteral<Collection<Provider<Integer>>> collectionOfProvidersOfIntegers =
       new TypeLiteral<Collection<Provider<Integer>>>() {};
   final TypeLiteral<String> stringType = TypeLiteral.get(String.class);
@@ -344,6 +345,39 @@ public class MultibinderTest extends TestCase {
         setOf(module), BOTH, false, 0, providerInstance(1));
   }
 
+  public void testMultibinderSetIsReusedWhenElementsAreSingletons() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        Multibinder<Object> multibinder = Multibinder.newSetBinder(binder(), Object.class);
+        multibinder.addBinding().toInstance("A");
+        multibinder.addBinding().to(Integer.class).in(Scopes.SINGLETON);
+        multibinder.addBinding().to(Key.get(String.class, Names.named("singleton")));
+        bind(Integer.class).toInstance(1);
+        bind(String.class).annotatedWith(Names.named("singleton"))
+            .toProvider(Providers.of("B")).asEagerSingleton();
+      }
+    });
+
+    Set<Object> set = injector.getInstance(Key.get(setOfObject));
+    assertEquals(ImmutableSet.<Object>of("A", 1, "B"), set);
+    assertSame(set, injector.getInstance(Key.get(setOfObject)));
+  }
+
+  public void testMultibinderSetIsRebuiltWhenAnElementIsUnscoped() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      protected void configure() {
+        Multibinder<Object> multibinder = Multibinder.newSetBinder(binder(), Object.class);
+        multibinder.addBinding().toInstance("A");
+        multibinder.addBinding().to(Integer.class);
+        bind(Integer.class).toProvider(Providers.of(1));
+      }
+    });
+
+    Set<Object> set = injector.getInstance(Key.get(setOfObject));
+    assertEquals(ImmutableSet.<Object>of("A", 1), set);
+    assertNotSame(set, injector.getInstance(Key.get(setOfObject)));
+  }
+
   public void testMultibinderSetForbidsDuplicateElements() {
     Module module1 = new AbstractModule() {
       protected void configure() {
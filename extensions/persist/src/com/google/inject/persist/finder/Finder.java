@@ -48,4 +48,18 @@ public @interface Finder {
    * have a default no-arg constructor and be a subclass of {@code java.util.Collection}.
    */
   Class<? extends Collection> returnAs() default Collection.class;
+
+  /**
+   * Returns the number of results fetched at a time by finders that return an
+   * {@link java.util.Iterator} or {@link java.lang.Iterable}. Such finders run their query one
+   * page at a time as they are iterated over, starting at the {@link FirstResult} and stopping
+   * after {@link MaxResults} results, so that large result sets need not fit in memory. The
+   * entities of each page are detached from the entity manager when the next page is fetched;
+   * flush any changes made to them before iterating further. Results are iterated over within
+   * the unit of work that called the finder, and the query should have an {@code order by}
+   * clause so that pages don't overlap.
+   *
+   * @since 4.0
+   */
+  int pageSize() default 100;
 }
\ No newline at end of file
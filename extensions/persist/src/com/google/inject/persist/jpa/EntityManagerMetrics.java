@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.persist.jpa;
+
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Counts how units of work obtain their entity managers and how long they keep them. Bound by
+ * {@link JpaPersistModule}, so that it can be injected and reported to a monitoring system.
+ * Counts start from zero when the injector is created.
+ *
+ * @since 4.0
+ */
+public interface EntityManagerMetrics {
+
+  /** Returns the number of entity managers created for a {@link UnitOfWork}. */
+  long getCreatedCount();
+
+  /**
+   * Returns the number of units of work that reused the entity manager of an ended one. Always
+   * zero unless {@link JpaPersistModule#reuseEntityManagers} is used.
+   */
+  long getReusedCount();
+
+  /**
+   * Returns the number of entity managers that were closed rather than kept for reuse, because
+   * their unit of work failed or ended with a transaction still active.
+   */
+  long getEvictedCount();
+
+  /** Returns the number of units of work that have ended. */
+  long getEndedCount();
+
+  /** Returns the time, in nanoseconds, that all ended units of work together were open. */
+  long getTotalOpenNanos();
+}
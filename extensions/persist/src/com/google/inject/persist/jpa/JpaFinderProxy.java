@@ -16,10 +16,15 @@
 
 package com.google.inject.persist.jpa;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
+import com.google.common.primitives.Ints;
 import com.google.inject.Inject;
-import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
 import com.google.inject.name.Named;
 import com.google.inject.persist.finder.Finder;
 import com.google.inject.persist.finder.FirstResult;
@@ -32,25 +37,36 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
 /**
- * TODO(dhanji): Make this work!!
+ * Runs the query of a {@link Finder} method. Everything that can be worked out from the method
+ * alone (the query, which arguments to bind and how, the result type and how to box the results)
+ * is worked out on its first call and kept in a {@link FinderDescriptor}, so that later calls
+ * only create the query, bind the arguments and run it.
  *
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
  */
 @Singleton
 class JpaFinderProxy implements MethodInterceptor {
   private final Map<Method, FinderDescriptor> finderCache = new MapMaker().weakKeys().makeMap();
-  private final Provider<EntityManager> emProvider;
+  private final JpaPersistService emProvider;
 
   @Inject
-  public JpaFinderProxy(Provider<EntityManager> emProvider) {
+  public JpaFinderProxy(JpaPersistService emProvider) {
     this.emProvider = emProvider;
   }
 
@@ -60,90 +76,25 @@ class JpaFinderProxy implements MethodInterceptor {
     //obtain a cached finder descriptor (or create a new one)
     JpaFinderProxy.FinderDescriptor finderDescriptor = getFinderDescriptor(methodInvocation);
 
-    Object result = null;
+    //paged finders run their query as they are iterated over
+    if (JpaFinderProxy.ReturnType.ITERATOR.equals(finderDescriptor.returnType)) {
+      return new PagedIterator(emProvider, finderDescriptor, methodInvocation.getArguments());
+    } else if (JpaFinderProxy.ReturnType.ITERABLE.equals(finderDescriptor.returnType)) {
+      return new PagedIterable(emProvider, finderDescriptor, methodInvocation.getArguments());
+    }
 
     //execute as query (named params or otherwise)
     Query jpaQuery = finderDescriptor.createQuery(em);
-    if (finderDescriptor.isBindAsRawParameters) {
-      bindQueryRawParameters(jpaQuery, finderDescriptor, methodInvocation.getArguments());
-    } else {
-      bindQueryNamedParameters(jpaQuery, finderDescriptor, methodInvocation.getArguments());
-    }
+    finderDescriptor.bindParameters(jpaQuery, methodInvocation.getArguments());
 
     //depending upon return type, decorate or return the result as is
-    if (JpaFinderProxy.ReturnType.PLAIN.equals(finderDescriptor.returnType)) {
-      result = jpaQuery.getSingleResult();
-    } else if (JpaFinderProxy.ReturnType.COLLECTION.equals(finderDescriptor.returnType)) {
-      result = getAsCollection(finderDescriptor, jpaQuery.getResultList());
-    } else if (JpaFinderProxy.ReturnType.ARRAY.equals(finderDescriptor.returnType)) {
-      result = jpaQuery.getResultList().toArray();
-    }
-
-    return result;
-  }
-
-  private Object getAsCollection(JpaFinderProxy.FinderDescriptor finderDescriptor,
-      List results) {
-    Collection<?> collection;
-    try {
-      collection = (Collection) finderDescriptor.returnCollectionTypeConstructor.newInstance();
-    } catch (InstantiationException e) {
-      throw new RuntimeException(
-          "Specified collection class of Finder's returnAs could not be instantated: "
-              + finderDescriptor.returnCollectionType, e);
-    } catch (IllegalAccessException e) {
-      throw new RuntimeException(
-          "Specified collection class of Finder's returnAs could not be instantated (do not have access privileges): "
-              + finderDescriptor.returnCollectionType, e);
-    } catch (InvocationTargetException e) {
-      throw new RuntimeException(
-          "Specified collection class of Finder's returnAs could not be instantated (it threw an exception): "
-              + finderDescriptor.returnCollectionType, e);
-    }
-
-    collection.addAll(results);
-    return collection;
-  }
-
-  private void bindQueryNamedParameters(Query jpaQuery,
-      JpaFinderProxy.FinderDescriptor descriptor, Object[] arguments) {
-    for (int i = 0; i < arguments.length; i++) {
-      Object argument = arguments[i];
-      Object annotation = descriptor.parameterAnnotations[i];
-
-      if (null == annotation)
-      //noinspection UnnecessaryContinue
-      {
-        continue;   //skip param as it's not bindable
-      } else if (annotation instanceof Named) {
-        Named named = (Named) annotation;
-        jpaQuery.setParameter(named.value(), argument);
-      } else if (annotation instanceof javax.inject.Named) {
-        javax.inject.Named named = (javax.inject.Named) annotation;
-        jpaQuery.setParameter(named.value(), argument);
-      } else if (annotation instanceof FirstResult) {
-        jpaQuery.setFirstResult((Integer) argument);
-      } else if (annotation instanceof MaxResults) {
-        jpaQuery.setMaxResults((Integer) argument);
-      }
-    }
-  }
-
-  private void bindQueryRawParameters(Query jpaQuery,
-      JpaFinderProxy.FinderDescriptor descriptor, Object[] arguments) {
-    for (int i = 0, index = 1; i < arguments.length; i++) {
-      Object argument = arguments[i];
-      Object annotation = descriptor.parameterAnnotations[i];
-
-      if (null == annotation) {
-        //bind it as a raw param (1-based index, yes I know its different from Hibernate, blargh)
-        jpaQuery.setParameter(index, argument);
-        index++;
-      } else if (annotation instanceof FirstResult) {
-        jpaQuery.setFirstResult((Integer) argument);
-      } else if (annotation instanceof MaxResults) {
-        jpaQuery.setMaxResults((Integer) argument);
-      }
+    switch (finderDescriptor.returnType) {
+      case COLLECTION:
+        return finderDescriptor.collectionFactory.newCollection(jpaQuery.getResultList());
+      case ARRAY:
+        return jpaQuery.getResultList().toArray();
+      default:
+        return jpaQuery.getSingleResult();
     }
   }
 
@@ -155,61 +106,7 @@ class JpaFinderProxy implements MethodInterceptor {
     }
 
     //otherwise reflect and cache finder info...
-    finderDescriptor = new JpaFinderProxy.FinderDescriptor();
-
-    //determine return type
-    finderDescriptor.returnClass = invocation.getMethod().getReturnType();
-    finderDescriptor.returnType = determineReturnType(finderDescriptor.returnClass);
-
-    //determine finder query characteristics
-    Finder finder = invocation.getMethod().getAnnotation(Finder.class);
-    String query = finder.query();
-    if (!"".equals(query.trim())) {
-      finderDescriptor.setQuery(query);
-    } else {
-      finderDescriptor.setNamedQuery(finder.namedQuery());
-    }
-
-    //determine parameter annotations
-    Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-    Object[] discoveredAnnotations = new Object[parameterAnnotations.length];
-    for (int i = 0; i < parameterAnnotations.length; i++) {
-      Annotation[] annotations = parameterAnnotations[i];
-      //each annotation per param
-      for (Annotation annotation : annotations) {
-        //discover the named, first or max annotations then break out
-        Class<? extends Annotation> annotationType = annotation.annotationType();
-        if (Named.class.equals(annotationType) || javax.inject.Named.class.equals(annotationType)) {
-          discoveredAnnotations[i] = annotation;
-          finderDescriptor.isBindAsRawParameters = false;
-          break;
-        } else if (FirstResult.class.equals(annotationType)) {
-          discoveredAnnotations[i] = annotation;
-          break;
-        } else if (MaxResults.class.equals(annotationType)) {
-          discoveredAnnotations[i] = annotation;
-          break;
-        }   //leave as null for no binding
-      }
-    }
-
-    //set the discovered set to our finder cache object
-    finderDescriptor.parameterAnnotations = discoveredAnnotations;
-
-    //discover the returned collection implementation if this finder returns a collection
-    if (JpaFinderProxy.ReturnType.COLLECTION.equals(finderDescriptor.returnType)
-        && finderDescriptor.returnClass != Collection.class) {
-      finderDescriptor.returnCollectionType = finder.returnAs();
-      try {
-        finderDescriptor.returnCollectionTypeConstructor = finderDescriptor.returnCollectionType
-            .getConstructor();
-        finderDescriptor.returnCollectionTypeConstructor.setAccessible(true);   //UGH!
-      } catch (NoSuchMethodException e) {
-        throw new RuntimeException(
-            "Finder's collection return type specified has no default constructor! returnAs: "
-                + finderDescriptor.returnCollectionType, e);
-      }
-    }
+    finderDescriptor = new JpaFinderProxy.FinderDescriptor(method);
 
     //cache it
     cacheFinderDescriptor(method, finderDescriptor);
@@ -228,52 +125,414 @@ class JpaFinderProxy implements MethodInterceptor {
     finderCache.put(method, finderDescriptor);
   }
 
-  private JpaFinderProxy.ReturnType determineReturnType(Class<?> returnClass) {
+  private static JpaFinderProxy.ReturnType determineReturnType(Class<?> returnClass) {
     if (Collection.class.isAssignableFrom(returnClass)) {
       return JpaFinderProxy.ReturnType.COLLECTION;
     } else if (returnClass.isArray()) {
       return JpaFinderProxy.ReturnType.ARRAY;
+    } else if (returnClass == Iterator.class) {
+      return JpaFinderProxy.ReturnType.ITERATOR;
+    } else if (returnClass == Iterable.class) {
+      return JpaFinderProxy.ReturnType.ITERABLE;
     }
 
     return JpaFinderProxy.ReturnType.PLAIN;
   }
 
   /**
-   * A wrapper data class that caches information about a finder method.
+   * Returns the class of the entities returned by {@code method}, for a typed query; or null if
+   * it can't be told from the method's signature.
    */
-  private static class FinderDescriptor {
-    private volatile boolean isKeyedQuery = false;
-    volatile boolean isBindAsRawParameters = true;
-        //should we treat the query as having ? instead of :named params
-    volatile JpaFinderProxy.ReturnType returnType;
-    volatile Class<?> returnClass;
-    volatile Class<? extends Collection> returnCollectionType;
-    volatile Constructor returnCollectionTypeConstructor;
-    volatile Object[] parameterAnnotations;
-        //contract is: null = no bind, @Named = param, @FirstResult/@MaxResults for paging
-
-    private String query;
-    private String name;
-
-    void setQuery(String query) {
-      this.query = query;
+  private static Class<?> determineResultClass(Method method, JpaFinderProxy.ReturnType returnType) {
+    TypeLiteral<?> returnTypeLiteral =
+        TypeLiteral.get(method.getDeclaringClass()).getReturnType(method);
+    Class<?> resultClass;
+    switch (returnType) {
+      case COLLECTION:
+      case ITERABLE:
+        resultClass = getElementClass(returnTypeLiteral.getSupertype(Iterable.class));
+        break;
+      case ITERATOR:
+        resultClass = getElementClass(returnTypeLiteral);
+        break;
+      case ARRAY:
+        // the array is always an Object[], whatever its declared type
+        resultClass = null;
+        break;
+      default:
+        resultClass = returnTypeLiteral.getRawType();
+        break;
     }
 
-    void setNamedQuery(String name) {
-      this.name = name;
-      isKeyedQuery = true;
+    // primitives and Object (and type variables, which erase to it) tell us nothing
+    return (resultClass == null || resultClass.isPrimitive() || resultClass == Object.class)
+        ? null
+        : resultClass;
+  }
+
+  /** Returns the raw type argument of {@code Iterable<T>} or {@code Iterator<T>}, or null. */
+  private static Class<?> getElementClass(TypeLiteral<?> iterableType) {
+    Type type = iterableType.getType();
+    return (type instanceof ParameterizedType)
+        ? TypeLiteral.get(((ParameterizedType) type).getActualTypeArguments()[0]).getRawType()
+        : null;
+  }
+
+  /**
+   * Returns how results are boxed into the collection returned by a finder, so that we don't
+   * need to construct the collection reflectively on each call if it's one of the usual types.
+   */
+  private static CollectionFactory determineCollectionFactory(Finder finder, Class<?> returnClass) {
+    final Class<? extends Collection> returnCollectionType = finder.returnAs();
+    if (returnCollectionType == Collection.class) {
+      if (returnClass == Collection.class || returnClass == List.class) {
+        // the result list is already a new collection, so return it as is
+        return new CollectionFactory() {
+          public Collection<?> newCollection(List<?> results) {
+            return results;
+          }
+        };
+      } else if (!returnClass.isAssignableFrom(ArrayList.class)) {
+        throw new RuntimeException("Finder's return type " + returnClass.getName()
+            + " can't hold a List of results, specify a collection class with returnAs.");
+      }
+      // the provider's list may be of any class, so copy it into the one the method returns
+    }
+    if (returnCollectionType == Collection.class || returnCollectionType == ArrayList.class) {
+      return new CollectionFactory() {
+        public Collection<?> newCollection(List<?> results) {
+          return new ArrayList<Object>(results);
+        }
+      };
+    } else if (returnCollectionType == LinkedList.class) {
+      return new CollectionFactory() {
+        public Collection<?> newCollection(List<?> results) {
+          return new LinkedList<Object>(results);
+        }
+      };
+    } else if (returnCollectionType == HashSet.class) {
+      return new CollectionFactory() {
+        public Collection<?> newCollection(List<?> results) {
+          return new HashSet<Object>(results);
+        }
+      };
+    } else if (returnCollectionType == LinkedHashSet.class) {
+      return new CollectionFactory() {
+        public Collection<?> newCollection(List<?> results) {
+          return new LinkedHashSet<Object>(results);
+        }
+      };
+    } else if (returnCollectionType == TreeSet.class) {
+      return new CollectionFactory() {
+        public Collection<?> newCollection(List<?> results) {
+          return new TreeSet<Object>(results);
+        }
+      };
+    }
+
+    final Constructor<? extends Collection> constructor;
+    try {
+      constructor = returnCollectionType.getConstructor();
+      constructor.setAccessible(true);   //UGH!
+    } catch (NoSuchMethodException e) {
+      throw new RuntimeException(
+          "Finder's collection return type specified has no default constructor! returnAs: "
+              + returnCollectionType, e);
+    }
+
+    return new CollectionFactory() {
+      @SuppressWarnings("unchecked")
+      public Collection<?> newCollection(List<?> results) {
+        Collection<Object> collection;
+        try {
+          collection = constructor.newInstance();
+        } catch (InstantiationException e) {
+          throw new RuntimeException(
+              "Specified collection class of Finder's returnAs could not be instantated: "
+                  + returnCollectionType, e);
+        } catch (IllegalAccessException e) {
+          throw new RuntimeException(
+              "Specified collection class of Finder's returnAs could not be instantated (do not have access privileges): "
+                  + returnCollectionType, e);
+        } catch (InvocationTargetException e) {
+          throw new RuntimeException(
+              "Specified collection class of Finder's returnAs could not be instantated (it threw an exception): "
+                  + returnCollectionType, e);
+        }
+
+        collection.addAll(results);
+        return collection;
+      }
+    };
+  }
+
+  /**
+   * A wrapper data class that caches information about a finder method. Immutable once
+   * constructed, except that typed queries are given up on if the JPA provider rejects them.
+   */
+  private static class FinderDescriptor {
+    final JpaFinderProxy.ReturnType returnType;
+    final CollectionFactory collectionFactory;
+
+    private final String query;
+    private final String name;
+
+    /** The entity type of the results, or null to create an untyped query. */
+    private volatile Class<?> resultClass;
+
+    //should we treat the query as having ? instead of :named params
+    private final boolean isBindAsRawParameters;
+
+    /** Indices of the arguments bound as query parameters, in the order they are bound. */
+    private final int[] parameterIndices;
+
+    /** Names of the parameters at {@code parameterIndices}, or null to bind them by position. */
+    private final String[] parameterNames;
+
+    /** Index of the {@link FirstResult} and {@link MaxResults} arguments, or -1 if none. */
+    private final int firstResultIndex;
+    private final int maxResultsIndex;
+
+    /** Number of results fetched at a time by paged finders. */
+    final int pageSize;
+
+    FinderDescriptor(Method method) {
+      //determine return type
+      Class<?> returnClass = method.getReturnType();
+      returnType = determineReturnType(returnClass);
+      resultClass = determineResultClass(method, returnType);
+
+      //determine finder query characteristics
+      Finder finder = method.getAnnotation(Finder.class);
+      if (!"".equals(finder.query().trim())) {
+        query = finder.query();
+        name = null;
+      } else {
+        query = null;
+        name = finder.namedQuery();
+      }
+
+      pageSize = finder.pageSize();
+      Preconditions.checkArgument(pageSize > 0,
+          "Finder's pageSize must be positive, but was %s: %s", pageSize, method);
+
+      //discover the returned collection implementation if this finder returns a collection
+      collectionFactory = JpaFinderProxy.ReturnType.COLLECTION.equals(returnType)
+          ? determineCollectionFactory(finder, returnClass)
+          : null;
+
+      //determine parameter annotations
+      Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+      List<Integer> unannotatedIndices = Lists.newArrayList();
+      List<Integer> namedIndices = Lists.newArrayList();
+      List<String> names = Lists.newArrayList();
+      int firstResultIndex = -1;
+      int maxResultsIndex = -1;
+      for (int i = 0; i < parameterAnnotations.length; i++) {
+        String parameterName = null;
+        boolean isBound = true;
+        //discover the named, first or max annotations then break out
+        for (Annotation annotation : parameterAnnotations[i]) {
+          Class<? extends Annotation> annotationType = annotation.annotationType();
+          if (Named.class.equals(annotationType)) {
+            parameterName = ((Named) annotation).value();
+            break;
+          } else if (javax.inject.Named.class.equals(annotationType)) {
+            parameterName = ((javax.inject.Named) annotation).value();
+            break;
+          } else if (FirstResult.class.equals(annotationType)) {
+            firstResultIndex = i;
+            isBound = false;
+            break;
+          } else if (MaxResults.class.equals(annotationType)) {
+            maxResultsIndex = i;
+            isBound = false;
+            break;
+          }
+        }
+
+        if (parameterName != null) {
+          namedIndices.add(i);
+          names.add(parameterName);
+        } else if (isBound) {
+          unannotatedIndices.add(i);
+        }
+      }
+
+      // any @Named parameter means unannotated ones aren't bound at all
+      isBindAsRawParameters = namedIndices.isEmpty();
+      if (isBindAsRawParameters) {
+        parameterIndices = Ints.toArray(unannotatedIndices);
+        parameterNames = null;
+      } else {
+        parameterIndices = Ints.toArray(namedIndices);
+        parameterNames = names.toArray(new String[names.size()]);
+      }
+      this.firstResultIndex = firstResultIndex;
+      this.maxResultsIndex = maxResultsIndex;
     }
 
     public boolean isKeyedQuery() {
-      return isKeyedQuery;
+      return name != null;
     }
 
     Query createQuery(EntityManager em) {
-      return isKeyedQuery ? em.createNamedQuery(name) : em.createQuery(query);
+      Class<?> resultClass = this.resultClass;
+      if (resultClass != null) {
+        try {
+          return isKeyedQuery()
+              ? em.createNamedQuery(name, resultClass)
+              : em.createQuery(query, resultClass);
+        } catch (IllegalArgumentException e) {
+          // the provider doesn't think the query returns resultClass (or the query is invalid,
+          // in which case the untyped query will say so); don't try again
+          this.resultClass = null;
+        }
+      }
+      return isKeyedQuery() ? em.createNamedQuery(name) : em.createQuery(query);
+    }
+
+    void bindParameters(Query jpaQuery, Object[] arguments) {
+      if (isBindAsRawParameters) {
+        for (int i = 0; i < parameterIndices.length; i++) {
+          //bind it as a raw param (1-based index, yes I know its different from Hibernate, blargh)
+          jpaQuery.setParameter(i + 1, arguments[parameterIndices[i]]);
+        }
+      } else {
+        for (int i = 0; i < parameterIndices.length; i++) {
+          jpaQuery.setParameter(parameterNames[i], arguments[parameterIndices[i]]);
+        }
+      }
+
+      if (firstResultIndex != -1) {
+        jpaQuery.setFirstResult((Integer) arguments[firstResultIndex]);
+      }
+      if (maxResultsIndex != -1) {
+        jpaQuery.setMaxResults((Integer) arguments[maxResultsIndex]);
+      }
+    }
+
+    /** Returns the {@link FirstResult} argument, or 0. */
+    int getFirstResult(Object[] arguments) {
+      return firstResultIndex != -1 ? (Integer) arguments[firstResultIndex] : 0;
     }
+
+    /** Returns the {@link MaxResults} argument, or {@code Integer.MAX_VALUE}. */
+    int getMaxResults(Object[] arguments) {
+      return maxResultsIndex != -1 ? (Integer) arguments[maxResultsIndex] : Integer.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Results of a finder returning {@code Iterable}. Each iterator runs the query anew, in the unit
+   * of work of the thread that creates it.
+   */
+  private static class PagedIterable implements Iterable<Object> {
+    private final JpaPersistService emProvider;
+    private final FinderDescriptor descriptor;
+    private final Object[] arguments;
+
+    PagedIterable(JpaPersistService emProvider, FinderDescriptor descriptor, Object[] arguments) {
+      this.emProvider = emProvider;
+      this.descriptor = descriptor;
+      this.arguments = arguments.clone();
+    }
+
+    public Iterator<Object> iterator() {
+      // begins a unit of work if there is none, as calling the finder would
+      emProvider.get();
+      return new PagedIterator(emProvider, descriptor, arguments);
+    }
+  }
+
+  /**
+   * Results of a finder returning {@code Iterator}, fetched {@link Finder#pageSize} at a time.
+   * The entities of a page are detached when the next page is fetched, so that the persistence
+   * context doesn't grow with the result set. Only those entities are detached: clearing the
+   * entity manager would also throw away unflushed changes to unrelated entities.
+   *
+   * <p>Pages are fetched with the entity manager of the unit of work the iterator was created in,
+   * so the iterator can't be used once that unit of work has ended.
+   */
+  private static class PagedIterator extends AbstractIterator<Object> {
+    private final JpaPersistService emProvider;
+    private final Object unitOfWork;
+    private final FinderDescriptor descriptor;
+    private final Object[] arguments;
+
+    /** Position of the next page in the whole result set. */
+    private int firstResult;
+
+    /** Number of results left to fetch before reaching the {@link MaxResults}. */
+    private int remaining;
+
+    private List<?> page;
+    private Iterator<?> pageIterator = Iterators.emptyIterator();
+    private boolean isLastPage;
+
+    PagedIterator(JpaPersistService emProvider, FinderDescriptor descriptor, Object[] arguments) {
+      this.emProvider = emProvider;
+      this.unitOfWork = emProvider.currentWork();
+      this.descriptor = descriptor;
+      this.arguments = arguments.clone();
+      this.firstResult = descriptor.getFirstResult(arguments);
+      this.remaining = descriptor.getMaxResults(arguments);
+    }
+
+    @Override protected Object computeNext() {
+      if (!pageIterator.hasNext()) {
+        if (isLastPage || remaining <= 0) {
+          return endOfData();
+        }
+        fetchNextPage();
+        if (!pageIterator.hasNext()) {
+          return endOfData();
+        }
+      }
+      return pageIterator.next();
+    }
+
+    private void fetchNextPage() {
+      // checked before get(), which would begin a new unit of work
+      Preconditions.checkState(emProvider.currentWork() == unitOfWork,
+          "The unit of work a paged finder's Iterator was created in has ended, or is on another"
+          + " thread. Use the Iterator within that unit of work, or return an Iterable instead.");
+      EntityManager em = emProvider.get();
+      if (page != null) {
+        detach(em, page);
+      }
+
+      int maxResults = Math.min(descriptor.pageSize, remaining);
+      Query jpaQuery = descriptor.createQuery(em);
+      descriptor.bindParameters(jpaQuery, arguments);
+      jpaQuery.setFirstResult(firstResult);
+      jpaQuery.setMaxResults(maxResults);
+
+      page = jpaQuery.getResultList();
+      pageIterator = page.iterator();
+      firstResult += page.size();
+      remaining -= page.size();
+      isLastPage = page.size() < maxResults;
+    }
+
+    private void detach(EntityManager em, List<?> results) {
+      for (Object result : results) {
+        try {
+          em.detach(result);
+        } catch (IllegalArgumentException e) {
+          // not an entity, but a scalar or a row of them; neither are the rest of the page
+          return;
+        }
+      }
+    }
+  }
+
+  /** Boxes the result list of a query into the collection type returned by a finder. */
+  private interface CollectionFactory {
+    Collection<?> newCollection(List<?> results);
   }
 
   private static enum ReturnType {
-    PLAIN, COLLECTION, ARRAY
+    PLAIN, COLLECTION, ARRAY, ITERATOR, ITERABLE
   }
 }
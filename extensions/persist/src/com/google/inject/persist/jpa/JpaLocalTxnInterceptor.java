@@ -70,6 +70,9 @@ class JpaLocalTxnInterceptor implements MethodInterceptor {
       result = methodInvocation.proceed();
 
     } catch (Exception e) {
+      // the persistence context may be inconsistent now, so don't reuse it
+      emProvider.discardEntityManager();
+
       //commit transaction only if rollback didnt occur
       if (rollbackIfNecessary(transactional, e, txn)) {
         txn.commit();
@@ -89,6 +92,9 @@ class JpaLocalTxnInterceptor implements MethodInterceptor {
     //  interferes with the advised method's throwing semantics)
     try {
       txn.commit();
+    } catch (RuntimeException e) {
+      emProvider.discardEntityManager();
+      throw e;
     } finally {
       //close the em if necessary
       if (null != didWeStartWork.get() ) {
@@ -30,6 +30,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -39,17 +42,34 @@ import javax.persistence.Persistence;
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
  */
 @Singleton
-class JpaPersistService implements Provider<EntityManager>, UnitOfWork, PersistService {
-  private final ThreadLocal<EntityManager> entityManager = new ThreadLocal<EntityManager>();
+class JpaPersistService
+    implements Provider<EntityManager>, UnitOfWork, PersistService, EntityManagerMetrics {
+  private final ThreadLocal<Work> work = new ThreadLocal<Work>();
 
   private final String persistenceUnitName;
   private final Map<?,?> persistenceProperties;
 
+  /** Cleared entity managers of ended units of work, most recently used first; or null. */
+  private final BlockingDeque<EntityManager> idleEntityManagers;
+
+  private final AtomicLong createdCount = new AtomicLong();
+  private final AtomicLong reusedCount = new AtomicLong();
+  private final AtomicLong evictedCount = new AtomicLong();
+  private final AtomicLong endedCount = new AtomicLong();
+  private final AtomicLong totalOpenNanos = new AtomicLong();
+
+  public JpaPersistService(String persistenceUnitName, Map<?,?> persistenceProperties) {
+    this(persistenceUnitName, persistenceProperties, 0);
+  }
+
   @Inject
   public JpaPersistService(@Jpa String persistenceUnitName,
-      @Nullable @Jpa Map<?,?> persistenceProperties) {
+      @Nullable @Jpa Map<?,?> persistenceProperties, @Jpa Integer maxIdleEntityManagers) {
     this.persistenceUnitName = persistenceUnitName;
     this.persistenceProperties = persistenceProperties;
+    this.idleEntityManagers = (maxIdleEntityManagers > 0)
+        ? new LinkedBlockingDeque<EntityManager>(maxIdleEntityManagers)
+        : null;
   }
 
   public EntityManager get() {
@@ -57,39 +77,119 @@ class JpaPersistService implements Provider<EntityManager>, UnitOfWork, PersistS
       begin();
     }
 
-    EntityManager em = entityManager.get();
-    Preconditions.checkState(null != em, "Requested EntityManager outside work unit. "
+    Work work = this.work.get();
+    Preconditions.checkState(null != work, "Requested EntityManager outside work unit. "
         + "Try calling UnitOfWork.begin() first, or use a PersistFilter if you "
         + "are inside a servlet environment.");
 
-    return em;
+    return work.entityManager;
   }
 
   public boolean isWorking() {
-    return entityManager.get() != null;
+    return work.get() != null;
+  }
+
+  /**
+   * Returns the unit of work in progress on this thread, or null. Only good for telling units of
+   * work apart, since their entity managers may be reused.
+   */
+  Object currentWork() {
+    return work.get();
   }
 
   public void begin() {
-    Preconditions.checkState(null == entityManager.get(),
+    Preconditions.checkState(null == work.get(),
         "Work already begun on this thread. Looks like you have called UnitOfWork.begin() twice"
          + " without a balancing call to end() in between.");
 
-    entityManager.set(emFactory.createEntityManager());
+    EntityManager em = (null != idleEntityManagers) ? idleEntityManagers.pollFirst() : null;
+    if (null != em) {
+      reusedCount.incrementAndGet();
+    } else {
+      em = emFactory.createEntityManager();
+      createdCount.incrementAndGet();
+    }
+    work.set(new Work(em));
   }
 
   public void end() {
-    EntityManager em = entityManager.get();
+    Work work = this.work.get();
 
     // Let's not penalize users for calling end() multiple times.
-    if (null == em) {
+    if (null == work) {
       return;
     }
 
     try {
-      em.close();
+      if (null == idleEntityManagers || !reuse(work)) {
+        work.entityManager.close();
+      }
     }
     finally {
-      entityManager.remove();
+      this.work.remove();
+      endedCount.incrementAndGet();
+      totalOpenNanos.addAndGet(System.nanoTime() - work.beganNanos);
+    }
+  }
+
+  /**
+   * Makes the current unit of work close its entity manager when it ends, rather than reuse it.
+   * Called when a transaction fails, since the persistence context may then be inconsistent.
+   */
+  void discardEntityManager() {
+    Work work = this.work.get();
+    if (null != work) {
+      work.discard = true;
+    }
+  }
+
+  /**
+   * Clears the entity manager of {@code work} and keeps it for a later unit of work. Returns
+   * false if it must be closed instead.
+   */
+  private boolean reuse(Work work) {
+    EntityManager em = work.entityManager;
+    try {
+      if (!work.discard && em.isOpen() && !em.getTransaction().isActive()) {
+        em.clear();
+        // false if enough entity managers are idle already
+        return idleEntityManagers.offerFirst(em);
+      }
+    } catch (RuntimeException e) {
+      // not in a state we can safely reuse
+    }
+    evictedCount.incrementAndGet();
+    return false;
+  }
+
+  public long getCreatedCount() {
+    return createdCount.get();
+  }
+
+  public long getReusedCount() {
+    return reusedCount.get();
+  }
+
+  public long getEvictedCount() {
+    return evictedCount.get();
+  }
+
+  public long getEndedCount() {
+    return endedCount.get();
+  }
+
+  public long getTotalOpenNanos() {
+    return totalOpenNanos.get();
+  }
+
+  /** The entity manager of a unit of work in progress. */
+  private static class Work {
+    final EntityManager entityManager;
+    final long beganNanos = System.nanoTime();
+    boolean discard;
+
+    Work(EntityManager entityManager) {
+      this.entityManager = entityManager;
     }
   }
 
@@ -113,6 +213,11 @@ class JpaPersistService implements Provider<EntityManager>, UnitOfWork, PersistS
 
   public synchronized void stop() {
     Preconditions.checkState(emFactory.isOpen(), "Persistence service was already shut down.");
+    if (null != idleEntityManagers) {
+      for (EntityManager em; null != (em = idleEntityManagers.pollFirst()); ) {
+        em.close();
+      }
+    }
     emFactory.close();
   }
 
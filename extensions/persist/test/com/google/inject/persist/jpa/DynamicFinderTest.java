@@ -16,22 +16,38 @@
 
 package com.google.inject.persist.jpa;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
+import com.google.inject.name.Named;
 import com.google.inject.persist.PersistService;
 import com.google.inject.persist.Transactional;
+import com.google.inject.persist.UnitOfWork;
 import com.google.inject.persist.finder.Finder;
+import com.google.inject.persist.finder.FirstResult;
+import com.google.inject.persist.finder.MaxResults;
 
 import junit.framework.TestCase;
 
+import org.aopalliance.intercept.MethodInvocation;
+
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.Vector;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
 
 /**
  * A test around providing sessions (starting, closing etc.)
@@ -74,9 +90,178 @@ public class DynamicFinderTest extends TestCase {
     assertEquals(te, list.get(0));
   }
 
+  public void testDynamicFinderBindsParametersAndBoxesResults() {
+    JpaDao dao = injector.getInstance(JpaDao.class);
+    JpaTestEntity first = new JpaTestEntity();
+    first.setText("first" + UUID.randomUUID());
+    dao.persist(first);
+    JpaTestEntity second = new JpaTestEntity();
+    second.setText("second" + UUID.randomUUID());
+    dao.persist(second);
+
+    JpaFinder finder = injector.getInstance(JpaFinder.class);
+    // twice, to use the cached finder descriptors
+    for (int i = 0; i < 2; i++) {
+      assertEquals(first, finder.findByText(first.getText()));
+      assertEquals(second, finder.findByTextAtPosition(second.getText()));
+      assertEquals(2L, finder.count());
+
+      List<JpaTestEntity> page = finder.listPage(1, 1);
+      assertEquals(1, page.size());
+      assertEquals(second, page.get(0));
+
+      Set<JpaTestEntity> set = finder.setAll();
+      assertTrue(set instanceof LinkedHashSet);
+      assertEquals(2, set.size());
+
+      Collection<JpaTestEntity> collection = finder.collectAll();
+      assertEquals(2, collection.size());
+
+      Object[] array = finder.arrayAll();
+      assertEquals(2, array.length);
+      assertEquals(first, array[0]);
+    }
+  }
+
+  public void testDynamicFinderCopiesResultsIntoADeclaredArrayList() throws Throwable {
+    Vector<JpaTestEntity> results = new Vector<JpaTestEntity>();
+    results.add(new JpaTestEntity());
+    @SuppressWarnings("unchecked")
+    TypedQuery<JpaTestEntity> query = mock(TypedQuery.class);
+    when(query.getResultList()).thenReturn(results);
+    EntityManager em = mock(EntityManager.class);
+    when(em.createQuery("from JpaTestEntity order by id", JpaTestEntity.class)).thenReturn(query);
+    EntityManagerFactory emFactory = mock(EntityManagerFactory.class);
+    when(emFactory.createEntityManager()).thenReturn(em);
+    JpaPersistService persistService = new JpaPersistService("testUnit", null);
+    persistService.start(emFactory);
+    MethodInvocation invocation = mock(MethodInvocation.class);
+    when(invocation.getMethod()).thenReturn(JpaFinder.class.getMethod("arrayListAll"));
+    when(invocation.getArguments()).thenReturn(new Object[0]);
+
+    // the provider's Vector can't be returned as an ArrayList, so it is copied
+    Object returned = new JpaFinderProxy(persistService).invoke(invocation);
+    persistService.end();
+    assertEquals(ArrayList.class, returned.getClass());
+    assertEquals(results, returned);
+  }
+
+  public void testDynamicFinderIteratesOverPages() {
+    JpaDao dao = injector.getInstance(JpaDao.class);
+    List<JpaTestEntity> entities = new ArrayList<JpaTestEntity>();
+    for (int i = 0; i < 5; i++) {
+      JpaTestEntity te = new JpaTestEntity();
+      te.setText("paged" + i);
+      dao.persist(te);
+      entities.add(te);
+    }
+
+    JpaFinder finder = injector.getInstance(JpaFinder.class);
+    EntityManager em = injector.getInstance(EntityManager.class);
+    Iterator<JpaTestEntity> iterator = finder.iterateAll();
+    JpaTestEntity first = iterator.next();
+    assertEquals(entities.get(0), first);
+    assertTrue(em.contains(first));
+    assertEquals(entities.get(1), iterator.next());
+
+    // fetching the second page detaches the first
+    assertEquals(entities.get(2), iterator.next());
+    assertFalse(em.contains(first));
+    assertEquals(entities.get(3), iterator.next());
+    assertEquals(entities.get(4), iterator.next());
+    assertFalse(iterator.hasNext());
+
+    Iterable<JpaTestEntity> window = finder.iterateWindow(1, 3);
+    for (int i = 0; i < 2; i++) {
+      List<JpaTestEntity> results = new ArrayList<JpaTestEntity>();
+      for (JpaTestEntity te : window) {
+        results.add(te);
+      }
+      assertEquals(entities.subList(1, 4), results);
+    }
+  }
+
+  public void testDynamicFinderIterablesRunInTheCurrentUnitOfWork() {
+    Injector reusing = Guice.createInjector(new JpaPersistModule("testUnit")
+        .reuseEntityManagers(1)
+        .addFinder(JpaFinder.class));
+    reusing.getInstance(PersistService.class).start();
+    try {
+      JpaDao dao = reusing.getInstance(JpaDao.class);
+      List<JpaTestEntity> entities = new ArrayList<JpaTestEntity>();
+      for (int i = 0; i < 3; i++) {
+        JpaTestEntity te = new JpaTestEntity();
+        te.setText("reused" + i);
+        dao.persist(te);
+        entities.add(te);
+      }
+
+      UnitOfWork unitOfWork = reusing.getInstance(UnitOfWork.class);
+      JpaFinder finder = reusing.getInstance(JpaFinder.class);
+      unitOfWork.begin();
+      Iterable<JpaTestEntity> window = finder.iterateWindow(0, 3);
+      Iterator<JpaTestEntity> iterator = finder.iterateAll();
+      assertEquals(entities.get(0), iterator.next());
+      unitOfWork.end();
+
+      // the entity manager is reused by the next unit of work, which the iterable's pages belong to
+      for (int i = 0; i < 2; i++) {
+        List<JpaTestEntity> results = new ArrayList<JpaTestEntity>();
+        for (JpaTestEntity te : window) {
+          results.add(te);
+        }
+        assertEquals(entities, results);
+        assertTrue(reusing.getInstance(EntityManager.class).contains(results.get(2)));
+        unitOfWork.end();
+      }
+      assertTrue(reusing.getInstance(EntityManagerMetrics.class).getReusedCount() > 0);
+
+      // the rest of the first page was already fetched, but not the second page
+      assertEquals(entities.get(1), iterator.next());
+      try {
+        iterator.next();
+        fail();
+      } catch (IllegalStateException expected) {
+      }
+      assertFalse(reusing.getInstance(JpaPersistService.class).isWorking());
+    } finally {
+      reusing.getInstance(PersistService.class).stop();
+    }
+  }
+
   public static interface JpaFinder {
     @Finder(query = "from JpaTestEntity", returnAs = ArrayList.class)
     public List<JpaTestEntity> listAll();
+
+    @Finder(query = "from JpaTestEntity where text = :text")
+    public JpaTestEntity findByText(@Named("text") String text);
+
+    @Finder(query = "from JpaTestEntity where text = ?")
+    public JpaTestEntity findByTextAtPosition(String text);
+
+    @Finder(query = "select count(e) from JpaTestEntity e")
+    public long count();
+
+    @Finder(query = "from JpaTestEntity order by id")
+    public List<JpaTestEntity> listPage(@FirstResult int first, @MaxResults int max);
+
+    @Finder(query = "from JpaTestEntity order by id", returnAs = LinkedHashSet.class)
+    public Set<JpaTestEntity> setAll();
+
+    @Finder(query = "from JpaTestEntity order by id")
+    public Collection<JpaTestEntity> collectAll();
+
+    @Finder(query = "from JpaTestEntity order by id")
+    public ArrayList<JpaTestEntity> arrayListAll();
+
+    @Finder(query = "from JpaTestEntity order by id")
+    public Object[] arrayAll();
+
+    @Finder(query = "from JpaTestEntity order by id", pageSize = 2)
+    public Iterator<JpaTestEntity> iterateAll();
+
+    @Finder(query = "from JpaTestEntity order by id", pageSize = 2)
+    public Iterable<JpaTestEntity> iterateWindow(@FirstResult int first, @MaxResults int max);
   }
 
   public static class JpaDao {
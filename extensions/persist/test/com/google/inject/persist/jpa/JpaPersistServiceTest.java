@@ -21,12 +21,16 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Properties;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
 import javax.persistence.spi.PersistenceProvider;
 
 public class JpaPersistServiceTest extends TestCase {
@@ -60,6 +64,84 @@ public class JpaPersistServiceTest extends TestCase {
     }
   }
 
+  public void test_givenReuse_whenWorkIsBegunAgain_thenEntityManagerIsClearedAndReused() {
+    JpaPersistService pooled = newPooledService();
+
+    pooled.begin();
+    pooled.end();
+    pooled.begin();
+    assertSame(entityManager, pooled.get());
+    pooled.end();
+
+    verify(factory, times(1)).createEntityManager();
+    verify(entityManager, times(2)).clear();
+    verify(entityManager, never()).close();
+    assertEquals(1, pooled.getCreatedCount());
+    assertEquals(1, pooled.getReusedCount());
+    assertEquals(0, pooled.getEvictedCount());
+    assertEquals(2, pooled.getEndedCount());
+
+    pooled.stop();
+    verify(entityManager).close();
+  }
+
+  public void test_givenActiveTransaction_whenEndIsCalled_thenEntityManagerIsClosed() {
+    JpaPersistService pooled = newPooledService();
+    EntityTransaction transaction = mock(EntityTransaction.class);
+    when(entityManager.getTransaction()).thenReturn(transaction);
+    when(transaction.isActive()).thenReturn(true);
+
+    pooled.begin();
+    pooled.end();
+    pooled.begin();
+    pooled.end();
+
+    verify(factory, times(2)).createEntityManager();
+    verify(entityManager, never()).clear();
+    verify(entityManager, times(2)).close();
+    assertEquals(2, pooled.getEvictedCount());
+    assertEquals(0, pooled.getReusedCount());
+  }
+
+  public void test_givenDiscardedEntityManager_whenEndIsCalled_thenEntityManagerIsClosed() {
+    JpaPersistService pooled = newPooledService();
+
+    pooled.begin();
+    pooled.discardEntityManager();
+    pooled.end();
+
+    verify(entityManager, never()).clear();
+    verify(entityManager).close();
+    assertEquals(1, pooled.getEvictedCount());
+    assertEquals(1, pooled.getEndedCount());
+  }
+
+  public void test_givenNoReuse_whenEndIsCalled_thenEntityManagerIsClosed() {
+    sut.start(factory);
+
+    sut.begin();
+    sut.end();
+    sut.begin();
+    sut.end();
+
+    verify(entityManager, times(2)).close();
+    assertEquals(2, sut.getCreatedCount());
+    assertEquals(0, sut.getReusedCount());
+    assertEquals(0, sut.getEvictedCount());
+    assertEquals(2, sut.getEndedCount());
+  }
+
+  private JpaPersistService newPooledService() {
+    JpaPersistService pooled =
+        new JpaPersistService(PERSISTENCE_UNIT_NAME, PERSISTENCE_PROPERTIES, 1);
+    EntityTransaction transaction = mock(EntityTransaction.class);
+    when(entityManager.isOpen()).thenReturn(true);
+    when(entityManager.getTransaction()).thenReturn(transaction);
+    when(factory.isOpen()).thenReturn(true);
+    pooled.start(factory);
+    return pooled;
+  }
+
   private class SimulatedException extends RuntimeException {
   }
 }
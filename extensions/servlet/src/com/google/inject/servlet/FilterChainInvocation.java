@@ -49,18 +49,23 @@ class FilterChainInvocation implements FilterChain {
       FilterChainInvocation.class.getName() + ".doFilter");
   
   private final FilterDefinition[] filterDefinitions;
+  private final UriPatternIndex filterIndex;
   private final FilterChain proceedingChain;
   private final ManagedServletPipeline servletPipeline;
 
   //state variable tracks current link in filterchain
   private int index = -1;
+  // the last request whose path was matched, and the positions of the filters that matched it
+  private HttpServletRequest matchedRequest;
+  private int[] matchedPositions;
   // whether or not we've caught an exception & cleaned up stack traces
   private boolean cleanedStacks = false;
 
-  public FilterChainInvocation(FilterDefinition[] filterDefinitions,
+  public FilterChainInvocation(FilterDefinition[] filterDefinitions, UriPatternIndex filterIndex,
       ManagedServletPipeline servletPipeline, FilterChain proceedingChain) {
 
     this.filterDefinitions = filterDefinitions;
+    this.filterIndex = filterIndex;
     this.servletPipeline = servletPipeline;
     this.proceedingChain = proceedingChain;
   }
@@ -70,9 +75,7 @@ class FilterChainInvocation implements FilterChain {
     GuiceFilter.Context previous = GuiceFilter.localContext.get();
     HttpServletRequest request = (HttpServletRequest) servletRequest;
     HttpServletResponse response = (HttpServletResponse) servletResponse;
-    HttpServletRequest originalRequest
-        = (previous != null) ? previous.getOriginalRequest() : request;
-    GuiceFilter.localContext.set(new GuiceFilter.Context(originalRequest, request, response));
+    GuiceFilter.localContext.set(new GuiceFilter.Context(previous, request, response));
     try {
       Filter filter = findNextFilter(request);
       if (filter != null) {
@@ -106,16 +109,29 @@ class FilterChainInvocation implements FilterChain {
   }
 
   /**
-   * Iterates over the remaining filter definitions.
+   * Finds the remaining filter definitions that match the request's current path.
    * Returns the first applicable filter, or null if none apply.
    */
   private Filter findNextFilter(HttpServletRequest request) {
-    while (++index < filterDefinitions.length) {
-      Filter filter = filterDefinitions[index].getFilterIfMatching(request);
-      if (filter != null) {
-        return filter;
+    if (index + 1 >= filterDefinitions.length) {
+      index = filterDefinitions.length;
+      return null;
+    }
+    // Filters usually pass the request on unwrapped, so its path is matched only once.
+    if (request != matchedRequest) {
+      matchedPositions = filterIndex.matches(ServletUtils.getContextRelativePath(request));
+      matchedRequest = request;
+    }
+    for (int position : matchedPositions) {
+      if (position > index) {
+        index = position;
+        Filter filter = filterDefinitions[position].getFilter();
+        if (filter != null) {
+          return filter;
+        }
       }
     }
+    index = filterDefinitions.length;
     return null;
   }
   
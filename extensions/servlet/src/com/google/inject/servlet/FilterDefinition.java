@@ -160,6 +160,14 @@ class FilterDefinition implements ProviderWithExtensionVisitor<FilterDefinition>
     }
   }
 
+  String getPattern() {
+    return pattern;
+  }
+
+  UriPatternType getPatternType() {
+    return patternMatcher.getPatternType();
+  }
+
   //VisibleForTesting
   Filter getFilter() {
     return filter.get();
@@ -17,6 +17,7 @@
 package com.google.inject.servlet;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.MapMaker;
 import com.google.inject.Inject;
 import com.google.inject.Key;
 import com.google.inject.OutOfScopeException;
@@ -25,6 +26,8 @@ import com.google.inject.internal.Errors;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 
 import javax.servlet.Filter;
@@ -58,6 +61,13 @@ import javax.servlet.http.HttpServletResponse;
  * scopes functionality. Typically, you will only register this filter in web.xml and register
  * any other filters (and servlets) using a {@link ServletModule}.
  *
+ * <p>A request keeps its request scope when the container dispatches it through this filter
+ * again, as it does for error pages and, on Servlet 3.0 containers, for a request that was put
+ * into asynchronous mode (map the filter with the {@code ASYNC} dispatcher): request-scoped
+ * objects created by earlier passes are still available. Work handed to
+ * {@code AsyncContext.start} should be wrapped with {@link ServletScopes#transferRequest} while
+ * the request is being serviced.
+ *
  * @author crazybob@google.com (Bob Lee)
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
@@ -70,6 +80,9 @@ public class GuiceFilter implements Filter {
    */
   private final FilterPipeline injectedPipeline;
 
+  /** The slots of request-scoped keys in the requests passing through this filter. */
+  private final RequestSlots requestSlots = new RequestSlots();
+
   /** Used to inject the servlets configured via {@link ServletModule} */
   static volatile WeakReference<ServletContext> servletContext =
       new WeakReference<ServletContext>(null);
@@ -84,6 +97,10 @@ public class GuiceFilter implements Filter {
   
   private static final Logger LOGGER = Logger.getLogger(GuiceFilter.class.getName());
 
+  /** The request attribute holding the request-scoped instances of a request. */
+  static final String SCOPED_INSTANCES_ATTRIBUTE =
+      GuiceFilter.class.getName() + ".scopedInstances";
+
   public GuiceFilter() {
     // Use the static FilterPipeline
     this(null);
@@ -124,10 +141,23 @@ public class GuiceFilter implements Filter {
     Context previous = GuiceFilter.localContext.get();
     HttpServletRequest request = (HttpServletRequest) servletRequest;
     HttpServletResponse response = (HttpServletResponse) servletResponse;
-    HttpServletRequest originalRequest
-        = (previous != null) ? previous.getOriginalRequest() : request;
+    final Context context;
+    if (previous != null) {
+      context = new Context(previous, request, response);
+    } else {
+      // A request may pass through this filter again once the first pass has
+      // returned, as for error pages and asynchronous dispatches. Every pass
+      // shares the same instances.
+      ScopedInstances instances =
+          (ScopedInstances) request.getAttribute(SCOPED_INSTANCES_ATTRIBUTE);
+      if (instances == null) {
+        instances = new ScopedInstances(requestSlots);
+        request.setAttribute(SCOPED_INSTANCES_ATTRIBUTE, instances);
+      }
+      context = new Context(request, request, response, instances);
+    }
     try {
-      new Context(originalRequest, request, response).call(new Callable<Void>() {
+      context.call(new Callable<Void>() {
         @Override public Void call() throws Exception {
           //dispatch across the servlet pipeline, ensuring web.xml's filterchain is honored
           filterPipeline.dispatch(servletRequest, servletResponse, filterChain);
@@ -143,10 +173,6 @@ public class GuiceFilter implements Filter {
     }
   }
 
-  static HttpServletRequest getOriginalRequest(Key<?> key) {
-    return getContext(key).getOriginalRequest();
-  }
-
   static HttpServletRequest getRequest(Key<?> key) {
     return getContext(key).getRequest();
   }
@@ -159,7 +185,7 @@ public class GuiceFilter implements Filter {
     return servletContext.get();
   }
 
-  private static Context getContext(Key<?> key) {
+  static Context getContext(Key<?> key) {
     Context context = localContext.get();
     if (context == null) {
       throw new OutOfScopeException("Cannot access scoped [" + Errors.convert(key) 
@@ -175,11 +201,42 @@ public class GuiceFilter implements Filter {
     final HttpServletRequest request;
     final HttpServletResponse response;
 
+    /**
+     * Request-scoped instances of this request, or null if they are kept as
+     * attributes of the original request (as for continued requests).
+     */
+    final ScopedInstances scopedInstances;
+
     Context(HttpServletRequest originalRequest, HttpServletRequest request,
         HttpServletResponse response) {
+      this(originalRequest, request, response, null);
+    }
+
+    Context(HttpServletRequest originalRequest, HttpServletRequest request,
+        HttpServletResponse response, ScopedInstances scopedInstances) {
       this.originalRequest = originalRequest;
       this.request = request;
       this.response = response;
+      this.scopedInstances = scopedInstances;
+    }
+
+    /**
+     * Creates a context for {@code request}, which is nested in {@code
+     * previous} if that is non-null. Nested contexts belong to the same
+     * request and share its scoped instances. Without a previous context,
+     * the request didn't pass through GuiceFilter, and its request-scoped
+     * instances are kept as attributes.
+     */
+    Context(Context previous, HttpServletRequest request, HttpServletResponse response) {
+      this.request = request;
+      this.response = response;
+      if (previous != null) {
+        this.originalRequest = previous.originalRequest;
+        this.scopedInstances = previous.scopedInstances;
+      } else {
+        this.originalRequest = request;
+        this.scopedInstances = null;
+      }
     }
 
     HttpServletRequest getOriginalRequest() {
@@ -195,15 +252,103 @@ public class GuiceFilter implements Filter {
     }
 
     // Synchronized to prevent two threads from using the same request
-    // scope concurrently.
-    synchronized <T> T call(Callable<T> callable) throws Exception {
-      Context previous = localContext.get();
-      localContext.set(this);
-      try {
-        return callable.call();
-      } finally {
-        localContext.set(previous);
+    // scope concurrently. All contexts of one request lock the same object.
+    <T> T call(Callable<T> callable) throws Exception {
+      synchronized (scopedInstances != null ? scopedInstances : this) {
+        Context previous = localContext.get();
+        localContext.set(this);
+        try {
+          return callable.call();
+        } finally {
+          localContext.set(previous);
+        }
+      }
+    }
+  }
+
+  /**
+   * The request-scoped instances of one HTTP request, indexed by the slots
+   * that {@link #slots} assigns to request-scoped keys. Reads take no lock.
+   * Each key is created under its own lock in {@link #creationLocks}, since
+   * tasks run by {@link ScopedExecutors} may share the request with the thread
+   * servicing it.
+   */
+  static final class ScopedInstances {
+    final ServletScopes.CreationLocks<Key<?>> creationLocks =
+        new ServletScopes.CreationLocks<Key<?>>();
+    final RequestSlots slots;
+    private final Object valuesLock = new Object();
+    private volatile AtomicReferenceArray<Object> values = new AtomicReferenceArray<Object>(8);
+
+    ScopedInstances(RequestSlots slots) {
+      this.slots = slots;
+    }
+
+    Object get(int slot) {
+      AtomicReferenceArray<Object> values = this.values;
+      return slot < values.length() ? values.get(slot) : null;
+    }
+
+    /**
+     * Stores {@code value} in {@code slot} unless it is already set, and
+     * returns the stored value.
+     */
+    Object putIfAbsent(int slot, Object value) {
+      // Not synchronized on this, which the request's contexts hold while
+      // the request is being serviced.
+      synchronized (valuesLock) {
+        AtomicReferenceArray<Object> values = this.values;
+        if (slot < values.length()) {
+          Object obj = values.get(slot);
+          if (obj != null) {
+            return obj;
+          }
+          values.set(slot, value);
+          return value;
+        }
+        AtomicReferenceArray<Object> grown =
+            new AtomicReferenceArray<Object>(Math.max(slot + 1, values.length() * 2));
+        for (int i = 0; i < values.length(); i++) {
+          grown.set(i, values.get(i));
+        }
+        grown.set(slot, value);
+        this.values = grown;
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Numbers request-scoped keys in the order they are first looked up, so
+   * that {@link ScopedInstances} only grow to the number of keys used in the
+   * requests passing through one filter, however many injectors scope them.
+   */
+  static final class RequestSlots {
+    private final ConcurrentMap<Key<?>, Slot> slots = new MapMaker().makeMap();
+
+    Slot get(Key<?> key) {
+      Slot slot = slots.get(key);
+      if (slot == null) {
+        synchronized (this) {
+          slot = slots.get(key);
+          if (slot == null) {
+            slot = new Slot(this, slots.size());
+            slots.put(key, slot);
+          }
+        }
       }
+      return slot;
+    }
+  }
+
+  /** The slot of a request-scoped key, as assigned by {@link #owner}. */
+  static final class Slot {
+    final RequestSlots owner;
+    final int index;
+
+    Slot(RequestSlots owner, int index) {
+      this.owner = owner;
+      this.index = index;
     }
   }
 
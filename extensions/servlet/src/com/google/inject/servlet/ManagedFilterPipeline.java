@@ -47,6 +47,7 @@ import javax.servlet.http.HttpServletRequestWrapper;
 @Singleton
 class ManagedFilterPipeline implements FilterPipeline{
   private final FilterDefinition[] filterDefinitions;
+  private final UriPatternIndex filterIndex;
   private final ManagedServletPipeline servletPipeline;
   private final Provider<ServletContext> servletContext;
 
@@ -66,6 +67,12 @@ class ManagedFilterPipeline implements FilterPipeline{
     this.servletContext = servletContext;
 
     this.filterDefinitions = collectFilterDefinitions(injector);
+
+    UriPatternIndex.Builder filterIndex = new UriPatternIndex.Builder();
+    for (FilterDefinition filterDefinition : filterDefinitions) {
+      filterIndex.add(filterDefinition.getPatternType(), filterDefinition.getPattern());
+    }
+    this.filterIndex = filterIndex.build();
   }
 
   /**
@@ -116,7 +123,8 @@ class ManagedFilterPipeline implements FilterPipeline{
     }
 
     //obtain the servlet pipeline to dispatch against
-    new FilterChainInvocation(filterDefinitions, servletPipeline, proceedingFilterChain)
+    new FilterChainInvocation(filterDefinitions, filterIndex, servletPipeline,
+        proceedingFilterChain)
         .doFilter(withDispatcher(request, servletPipeline), response);
 
   }
@@ -46,12 +46,19 @@ import javax.servlet.http.HttpServletRequestWrapper;
 @Singleton
 class ManagedServletPipeline {
   private final ServletDefinition[] servletDefinitions;
+  private final UriPatternIndex servletIndex;
   private static final TypeLiteral<ServletDefinition> SERVLET_DEFS =
       TypeLiteral.get(ServletDefinition.class);
 
   @Inject
   public ManagedServletPipeline(Injector injector) {
     this.servletDefinitions = collectServletDefinitions(injector);
+
+    UriPatternIndex.Builder servletIndex = new UriPatternIndex.Builder();
+    for (ServletDefinition servletDefinition : servletDefinitions) {
+      servletIndex.add(servletDefinition.getPatternType(), servletDefinition.getPattern());
+    }
+    this.servletIndex = servletIndex.build();
   }
 
   boolean hasServletsMapped() {
@@ -86,11 +93,16 @@ class ManagedServletPipeline {
   public boolean service(ServletRequest request, ServletResponse response)
       throws IOException, ServletException {
 
+    if (servletDefinitions.length == 0) {
+      return false;
+    }
+
     //stop at the first matching servlet and service
-    for (ServletDefinition servletDefinition : servletDefinitions) {
-      if (servletDefinition.service(request, response)) {
-        return true;
-      }
+    String path = ServletUtils.getContextRelativePath((HttpServletRequest) request);
+    int index = servletIndex.firstMatch(path, 0);
+    if (index != -1) {
+      servletDefinitions[index].doService(request, response);
+      return true;
     }
 
     //there was no match...
@@ -114,54 +126,54 @@ class ManagedServletPipeline {
     // TODO(dhanji): check servlet spec to see if the following is legal or not.
     // Need to strip query string if requested...
 
-    for (final ServletDefinition servletDefinition : servletDefinitions) {
-      if (servletDefinition.shouldServe(path)) {
-        return new RequestDispatcher() {
-          public void forward(ServletRequest servletRequest, ServletResponse servletResponse)
-              throws ServletException, IOException {
-            Preconditions.checkState(!servletResponse.isCommitted(),
-                "Response has been committed--you can only call forward before"
-                + " committing the response (hint: don't flush buffers)");
-
-            // clear buffer before forwarding
-            servletResponse.resetBuffer();
-
-            ServletRequest requestToProcess;
-            if (servletRequest instanceof HttpServletRequest) {
-               requestToProcess = new RequestDispatcherRequestWrapper(servletRequest, newRequestUri);
-            } else {
-              // This should never happen, but instead of throwing an exception
-              // we will allow a happy case pass thru for maximum tolerance to
-              // legacy (and internal) code.
-              requestToProcess = servletRequest;
-            }
-
-            // now dispatch to the servlet
-            doServiceImpl(servletDefinition, requestToProcess, servletResponse);
-          }
-
-          public void include(ServletRequest servletRequest, ServletResponse servletResponse)
-              throws ServletException, IOException {
-            // route to the target servlet
-            doServiceImpl(servletDefinition, servletRequest, servletResponse);
-          }
-
-          private void doServiceImpl(ServletDefinition servletDefinition, ServletRequest servletRequest,
-              ServletResponse servletResponse) throws ServletException, IOException {
-            servletRequest.setAttribute(REQUEST_DISPATCHER_REQUEST, Boolean.TRUE);
-
-            try {
-              servletDefinition.doService(servletRequest, servletResponse);
-            } finally {
-              servletRequest.removeAttribute(REQUEST_DISPATCHER_REQUEST);
-            }
-          }
-        };
-      }
+    int index = servletIndex.firstMatch(path, 0);
+    if (index == -1) {
+      //can't process
+      return null;
     }
 
-    //otherwise, can't process
-    return null;
+    final ServletDefinition servletDefinition = servletDefinitions[index];
+    return new RequestDispatcher() {
+      public void forward(ServletRequest servletRequest, ServletResponse servletResponse)
+          throws ServletException, IOException {
+        Preconditions.checkState(!servletResponse.isCommitted(),
+            "Response has been committed--you can only call forward before"
+            + " committing the response (hint: don't flush buffers)");
+
+        // clear buffer before forwarding
+        servletResponse.resetBuffer();
+
+        ServletRequest requestToProcess;
+        if (servletRequest instanceof HttpServletRequest) {
+           requestToProcess = new RequestDispatcherRequestWrapper(servletRequest, newRequestUri);
+        } else {
+          // This should never happen, but instead of throwing an exception
+          // we will allow a happy case pass thru for maximum tolerance to
+          // legacy (and internal) code.
+          requestToProcess = servletRequest;
+        }
+
+        // now dispatch to the servlet
+        doServiceImpl(servletDefinition, requestToProcess, servletResponse);
+      }
+
+      public void include(ServletRequest servletRequest, ServletResponse servletResponse)
+          throws ServletException, IOException {
+        // route to the target servlet
+        doServiceImpl(servletDefinition, servletRequest, servletResponse);
+      }
+
+      private void doServiceImpl(ServletDefinition servletDefinition, ServletRequest servletRequest,
+          ServletResponse servletResponse) throws ServletException, IOException {
+        servletRequest.setAttribute(REQUEST_DISPATCHER_REQUEST, Boolean.TRUE);
+
+        try {
+          servletDefinition.doService(servletRequest, servletResponse);
+        } finally {
+          servletRequest.removeAttribute(REQUEST_DISPATCHER_REQUEST);
+        }
+      }
+    };
   }
 
   /**
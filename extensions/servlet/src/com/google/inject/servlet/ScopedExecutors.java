@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors that run tasks in the request scope of the thread that submitted
+ * them. This is an alternative to wrapping each task with {@link
+ * ServletScopes#continueRequest} when fanning work out to a thread pool:
+ * instead of a snapshot of the request and a seed map, each task gets a
+ * reference to the submitting request's scope, so it sees (and shares) the
+ * same request-scoped objects.
+ *
+ * <p>Tasks must finish before the request they were submitted from does.
+ * Request-scoped objects are usually not thread-safe; tasks that share them
+ * need to coordinate their use as if they were called from several threads,
+ * which they are. In an HTTP request, tasks may use the request, response and
+ * session just as the request thread may, subject to the same caveats.
+ *
+ * <p>Tasks submitted outside of a request scope run unscoped.
+ *
+ * @since 4.0
+ */
+public final class ScopedExecutors {
+
+  private ScopedExecutors() {}
+
+  /**
+   * Returns an executor service that runs each task submitted to it on {@code
+   * executorService}, in the request scope of the submitting thread. Shutting
+   * down the returned executor service shuts down {@code executorService}.
+   */
+  public static ExecutorService requestScoped(ExecutorService executorService) {
+    return new RequestScopedExecutorService(checkNotNull(executorService, "executorService"));
+  }
+
+  private static final class RequestScopedExecutorService extends AbstractExecutorService {
+    private final ExecutorService delegate;
+
+    RequestScopedExecutorService(ExecutorService delegate) {
+      this.delegate = delegate;
+    }
+
+    public void execute(Runnable command) {
+      delegate.execute(ServletScopes.shareRequest(checkNotNull(command, "command")));
+    }
+
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    public List<Runnable> shutdownNow() {
+      return delegate.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override public String toString() {
+      return "ScopedExecutors.requestScoped(" + delegate + ")";
+    }
+  }
+}
@@ -15,8 +15,6 @@
  */
 package com.google.inject.servlet;
 
-import static com.google.inject.servlet.ManagedServletPipeline.REQUEST_DISPATCHER_REQUEST;
-
 import com.google.common.collect.Iterators;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -34,6 +32,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
@@ -52,6 +51,8 @@ import javax.servlet.http.HttpServletResponse;
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
 class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinition> {
+  private static final Pattern MULTIPLE_SLASHES = Pattern.compile("[/]{2,}");
+
   private final String pattern;
   private final Key<? extends HttpServlet> servletKey;
   private final UriPatternMatcher patternMatcher;
@@ -196,6 +197,8 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
   void doService(final ServletRequest servletRequest, ServletResponse servletResponse)
       throws ServletException, IOException {
 
+    // The servlet path and path info are computed on first access and then kept for the rest of
+    // the dispatch; frameworks tend to ask for them many times per request.
     HttpServletRequest request = new HttpServletRequestWrapper(
         (HttpServletRequest) servletRequest) {
       private boolean pathComputed;
@@ -206,11 +209,12 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
 
       @Override
       public String getPathInfo() {
-        if (!isPathInfoComputed()) {
+        if (!pathInfoComputed) {
           String servletPath = getServletPath();
           int servletPathLength = servletPath.length();
           String requestUri = getRequestURI();
-          pathInfo = requestUri.substring(getContextPath().length()).replaceAll("[/]{2,}", "/");
+          pathInfo = MULTIPLE_SLASHES.matcher(requestUri.substring(getContextPath().length()))
+              .replaceAll("/");
           // See: https://github.com/google/guice/issues/372
           if (pathInfo.startsWith(servletPath)) {
             pathInfo = pathInfo.substring(servletPathLength);
@@ -234,18 +238,6 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
         return pathInfo;
       }
 
-      // NOTE(dhanji): These two are a bit of a hack to help ensure that request dispatcher-sent
-      // requests don't use the same path info that was memoized for the original request.
-      // NOTE(iqshum): I don't think this is possible, since the dispatcher-sent request would
-      // perform its own wrapping.
-      private boolean isPathInfoComputed() {
-        return pathInfoComputed && servletRequest.getAttribute(REQUEST_DISPATCHER_REQUEST) == null;
-      }
-
-      private boolean isPathComputed() {
-        return pathComputed && servletRequest.getAttribute(REQUEST_DISPATCHER_REQUEST) == null;
-      }
-
       @Override
       public String getServletPath() {
         return computePath();
@@ -260,7 +252,7 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
 
       // Memoizer pattern.
       private String computePath() {
-        if (!isPathComputed()) {
+        if (!pathComputed) {
           String servletPath = super.getServletPath();
           path = patternMatcher.extractPath(servletPath);
           pathComputed = true;
@@ -280,9 +272,7 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
   private void doServiceImpl(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
     GuiceFilter.Context previous = GuiceFilter.localContext.get();
-    HttpServletRequest originalRequest
-        = (previous != null) ? previous.getOriginalRequest() : request;
-    GuiceFilter.localContext.set(new GuiceFilter.Context(originalRequest, request, response));
+    GuiceFilter.localContext.set(new GuiceFilter.Context(previous, request, response));
     try {
       httpServlet.get().service(request, response);
     } finally {
@@ -297,4 +287,8 @@ class ServletDefinition implements ProviderWithExtensionVisitor<ServletDefinitio
   String getPattern() {
     return pattern;
   }
+
+  UriPatternType getPatternType() {
+    return patternMatcher.getPatternType();
+  }
 }
@@ -18,6 +18,7 @@ package com.google.inject.servlet;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Maps.EntryTransformer;
 import com.google.inject.Binding;
@@ -27,9 +28,12 @@ import com.google.inject.OutOfScopeException;
 import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Scopes;
+import com.google.inject.internal.CycleDetectingLock;
 
+import java.io.Serializable;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -55,61 +59,120 @@ public class ServletScopes {
   /** A sentinel attribute value representing null. */
   enum NullObject { INSTANCE }
 
+  /** Keys bound in request-scope which are handled directly by GuiceFilter. */
+  private static final ImmutableSet<Key<?>> REQUEST_CONTEXT_KEYS = ImmutableSet.of(
+      Key.get(HttpServletRequest.class),
+      Key.get(HttpServletResponse.class),
+      new Key<Map<String, String[]>>(RequestParameters.class) {});
+
   /**
    * HTTP servlet request scope.
    */
   public static final Scope REQUEST = new Scope() {
     public <T> Provider<T> scope(final Key<T> key, final Provider<T> creator) {
+      final boolean requestContextKey = REQUEST_CONTEXT_KEYS.contains(key);
       return new Provider<T>() {
-
-        /** Keys bound in request-scope which are handled directly by GuiceFilter. */
-        private final ImmutableSet<Key<?>> REQUEST_CONTEXT_KEYS = ImmutableSet.of(
-                Key.get(HttpServletRequest.class),
-                Key.get(HttpServletResponse.class),
-                new Key<Map<String, String[]>>(RequestParameters.class) {});
+        /** The slot of the key in the request slots it was last looked up in. */
+        private volatile GuiceFilter.Slot lastSlot;
 
         public T get() {
           // Check if the alternate request scope should be used, if no HTTP
           // request is in progress.
           if (null == GuiceFilter.localContext.get()) {
 
-            // NOTE(dhanji): We don't need to synchronize on the scope map
-            // unlike the HTTP request because we're the only ones who have
-            // a reference to it, and it is only available via a threadlocal.
+            // Lookups don't lock the scope map. Creation locks the key, because
+            // tasks run by ScopedExecutors may share the scope with this thread.
             Context context = requestScopeContext.get();
             if (null != context) {
-              @SuppressWarnings("unchecked")
-              T t = (T) context.map.get(key);
+              Object obj = context.map.get(key);
+              if (obj == null) {
+                CycleDetectingLock<Key<?>> creationLock = context.creationLocks.get(key);
+                if (creationLock.lockOrDetectPotentialLocksCycle().isEmpty()) {
+                  try {
+                    obj = context.map.get(key);
+                    if (obj == null) {
+                      T t = creator.get();
+                      if (Scopes.isCircularProxy(t)) {
+                        return t;
+                      }
+                      obj = context.putIfAbsent(key, t);
+                    }
+                  } finally {
+                    creationLock.unlock();
+                  }
+                } else {
+                  // See SESSION.
+                  T t = creator.get();
+                  if (Scopes.isCircularProxy(t)) {
+                    return t;
+                  }
+                  obj = context.putIfAbsent(key, t);
+                }
+              }
 
               // Accounts for @Nullable providers.
-              if (NullObject.INSTANCE == t) {
+              if (NullObject.INSTANCE == obj) {
                 return null;
               }
-
-              if (t == null) {
-                t = creator.get();
-                if (!Scopes.isCircularProxy(t)) {
-                  // Store a sentinel for provider-given null values.
-                  context.map.put(key, t != null ? t : NullObject.INSTANCE);
-                }
-              }
-
+              @SuppressWarnings("unchecked")
+              T t = (T) obj;
               return t;
             } // else: fall into normal HTTP request scope and out of scope
               // exception is thrown.
           }
 
-          // Always synchronize and get/set attributes on the underlying request
-          // object since Filters may wrap the request and change the value of
-          // {@code GuiceFilter.getRequest()}.
-          //
           // This _correctly_ throws up if the thread is out of scope.
-          HttpServletRequest request = GuiceFilter.getOriginalRequest(key);
-          if (REQUEST_CONTEXT_KEYS.contains(key)) {
-            // Don't store these keys as attributes, since they are handled by
-            // GuiceFilter itself.
+          GuiceFilter.Context context = GuiceFilter.getContext(key);
+          if (requestContextKey) {
+            // Don't store these keys, since they are handled by GuiceFilter
+            // itself.
             return creator.get();
           }
+
+          // The request's own slots are shared by all of its contexts, so
+          // filters that wrap the request still see the same instances.
+          GuiceFilter.ScopedInstances instances = context.scopedInstances;
+          if (instances != null) {
+            GuiceFilter.Slot slot = lastSlot;
+            if (slot == null || slot.owner != instances.slots) {
+              slot = instances.slots.get(key);
+              lastSlot = slot;
+            }
+            Object obj = instances.get(slot.index);
+            if (obj == null) {
+              CycleDetectingLock<Key<?>> creationLock = instances.creationLocks.get(key);
+              if (creationLock.lockOrDetectPotentialLocksCycle().isEmpty()) {
+                try {
+                  obj = instances.get(slot.index);
+                  if (obj == null) {
+                    T t = creator.get();
+                    if (Scopes.isCircularProxy(t)) {
+                      return t;
+                    }
+                    obj = instances.putIfAbsent(slot.index, (t != null) ? t : NullObject.INSTANCE);
+                  }
+                } finally {
+                  creationLock.unlock();
+                }
+              } else {
+                // See SESSION.
+                T t = creator.get();
+                if (Scopes.isCircularProxy(t)) {
+                  return t;
+                }
+                obj = instances.putIfAbsent(slot.index, (t != null) ? t : NullObject.INSTANCE);
+              }
+            }
+            if (NullObject.INSTANCE == obj) {
+              return null;
+            }
+            @SuppressWarnings("unchecked")
+            T t = (T) obj;
+            return t;
+          }
+
+          // Continued requests carry their seeded instances as attributes.
+          HttpServletRequest request = context.getOriginalRequest();
           String name = key.toString();
           synchronized (request) {
             Object obj = request.getAttribute(name);
@@ -143,6 +206,10 @@ public class ServletScopes {
 
   /**
    * HTTP session scope.
+   *
+   * <p>Session-scoped objects are kept as session attributes, and looking up
+   * one that already exists takes no lock. Creating an object locks only its
+   * key within the session, so unrelated keys can be created concurrently.
    */
   public static final Scope SESSION = new Scope() {
     public <T> Provider<T> scope(final Key<T> key, final Provider<T> creator) {
@@ -150,21 +217,40 @@ public class ServletScopes {
       return new Provider<T>() {
         public T get() {
           HttpSession session = GuiceFilter.getRequest(key).getSession();
-          synchronized (session) {
-            Object obj = session.getAttribute(name);
-            if (NullObject.INSTANCE == obj) {
-              return null;
-            }
-            @SuppressWarnings("unchecked")
-            T t = (T) obj;
-            if (t == null) {
-              t = creator.get();
-              if (!Scopes.isCircularProxy(t)) {
-                session.setAttribute(name, (t != null) ? t : NullObject.INSTANCE);
+          Object obj = session.getAttribute(name);
+          if (obj == null) {
+            SessionLocks sessionLocks = SessionLocks.of(session);
+            CycleDetectingLock<String> creationLock = sessionLocks.get(name);
+            if (creationLock.lockOrDetectPotentialLocksCycle().isEmpty()) {
+              try {
+                obj = session.getAttribute(name);
+                if (obj == null) {
+                  T t = creator.get();
+                  if (Scopes.isCircularProxy(t)) {
+                    return t;
+                  }
+                  obj = sessionLocks.putIfAbsent(session, name, t);
+                }
+              } finally {
+                creationLock.unlock();
+              }
+            } else {
+              // The thread creating this key is waiting for a key we are
+              // creating. Create our own instance rather than deadlock;
+              // whichever one is stored first is kept.
+              T t = creator.get();
+              if (Scopes.isCircularProxy(t)) {
+                return t;
               }
+              obj = sessionLocks.putIfAbsent(session, name, t);
             }
-            return t;
           }
+          if (NullObject.INSTANCE == obj) {
+            return null;
+          }
+          @SuppressWarnings("unchecked")
+          T t = (T) obj;
+          return t;
         }
         @Override
         public String toString() {
@@ -179,6 +265,76 @@ public class ServletScopes {
     }
   };
 
+  /**
+   * The creation locks of one session's scoped objects, stored as a session
+   * attribute. The locks are not serialized; a restored session gets new ones.
+   */
+  private static final class SessionLocks implements Serializable {
+    static final String ATTRIBUTE = SessionLocks.class.getName();
+
+    private transient CreationLocks<String> locks = new CreationLocks<String>();
+
+    /** Returns the locks of {@code session}, creating them if necessary. */
+    static SessionLocks of(HttpSession session) {
+      Object sessionLocks = session.getAttribute(ATTRIBUTE);
+      if (sessionLocks == null) {
+        // Only once per session.
+        synchronized (session) {
+          sessionLocks = session.getAttribute(ATTRIBUTE);
+          if (sessionLocks == null) {
+            sessionLocks = new SessionLocks();
+            session.setAttribute(ATTRIBUTE, sessionLocks);
+          }
+        }
+      }
+      return (SessionLocks) sessionLocks;
+    }
+
+    CycleDetectingLock<String> get(String name) {
+      return locks.get(name);
+    }
+
+    /**
+     * Stores {@code value} as the attribute {@code name} unless it is already
+     * set, and returns the stored attribute.
+     */
+    synchronized Object putIfAbsent(HttpSession session, String name, Object value) {
+      Object obj = session.getAttribute(name);
+      if (obj == null) {
+        // Store a sentinel for provider-given null values.
+        obj = (value != null) ? value : NullObject.INSTANCE;
+        session.setAttribute(name, obj);
+      }
+      return obj;
+    }
+
+    private Object readResolve() {
+      return new SessionLocks();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * Locks for creating scoped objects, one per key, so that unrelated keys
+   * can be created concurrently.
+   */
+  static final class CreationLocks<K> {
+    private final ConcurrentMap<K, CycleDetectingLock<K>> locks = new MapMaker().makeMap();
+
+    CycleDetectingLock<K> get(K key) {
+      CycleDetectingLock<K> lock = locks.get(key);
+      if (lock == null) {
+        CycleDetectingLock<K> newLock = new CycleDetectingLock<K>(key);
+        lock = locks.putIfAbsent(key, newLock);
+        if (lock == null) {
+          lock = newLock;
+        }
+      }
+      return lock;
+    }
+  }
+
   /**
    * Wraps the given callable in a contextual callable that "continues" the
    * HTTP request in another thread. This acts as a way of transporting
@@ -287,6 +443,45 @@ public class ServletScopes {
     };
   }
 
+  /**
+   * Wraps {@code task} to run in the request scope of the calling thread,
+   * sharing its scoped objects instead of copying them, or returns {@code
+   * task} itself if no request scope is active. Unlike {@link
+   * #transferRequest}, the task doesn't wait for the request to release the
+   * scope; see {@link ScopedExecutors}.
+   */
+  static Runnable shareRequest(final Runnable task) {
+    final GuiceFilter.Context httpContext = GuiceFilter.localContext.get();
+    if (httpContext != null) {
+      return new Runnable() {
+        public void run() {
+          GuiceFilter.Context previous = GuiceFilter.localContext.get();
+          GuiceFilter.localContext.set(httpContext);
+          try {
+            task.run();
+          } finally {
+            GuiceFilter.localContext.set(previous);
+          }
+        }
+      };
+    }
+    final Context context = requestScopeContext.get();
+    if (context != null) {
+      return new Runnable() {
+        public void run() {
+          Context previous = requestScopeContext.get();
+          requestScopeContext.set(context);
+          try {
+            task.run();
+          } finally {
+            requestScopeContext.set(previous);
+          }
+        }
+      };
+    }
+    return task;
+  }
+
   /**
    * Returns true if {@code binding} is request-scoped. If the binding is a
    * {@link com.google.inject.spi.LinkedKeyBinding linked key binding} and
@@ -361,7 +556,19 @@ public class ServletScopes {
   }
 
   private static class Context {
-    final Map<Key, Object> map = Maps.newHashMap();
+    final ConcurrentMap<Key, Object> map = Maps.newConcurrentMap();
+    final CreationLocks<Key<?>> creationLocks = new CreationLocks<Key<?>>();
+
+    /**
+     * Stores {@code value} for {@code key} unless it is already set, and
+     * returns the stored value.
+     */
+    Object putIfAbsent(Key<?> key, Object value) {
+      // Store a sentinel for provider-given null values.
+      Object obj = (value != null) ? value : NullObject.INSTANCE;
+      Object previous = map.putIfAbsent(key, obj);
+      return (previous != null) ? previous : obj;
+    }
 
     // Synchronized to prevent two threads from using the same request
     // scope concurrently.
@@ -0,0 +1,310 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds which of an ordered list of URI patterns match a URI, without testing the patterns one
+ * after another. Servlet-style patterns are indexed by kind: literals in a hash map, {@code
+ * /prefix/*} patterns in a trie of their prefixes and {@code *.suffix} patterns in a trie of their
+ * reversed suffixes, so looking them up costs time proportional to the URI's length. Regular
+ * expressions are combined into one alternation that the regex engine tries in order, so that the
+ * first alternative to match is also the first matching pattern.
+ *
+ * <p>Results are the same as calling {@link UriPatternMatcher#matches} on each pattern in order.
+ * All the patterns matching a URI are remembered for the most recently seen URIs, so building the
+ * filter chain for a popular URI usually costs a single cache lookup. Instances may be shared by
+ * concurrent requests.
+ */
+final class UriPatternIndex {
+  private static final Logger logger = Logger.getLogger(UriPatternIndex.class.getName());
+
+  private static final int[] NONE = {};
+
+  /** How many URIs to remember the matching patterns of. */
+  private static final int RECENT_URIS = 1000;
+
+  /** Matches backreferences and comments, which are not safe to combine with other patterns. */
+  private static final Pattern UNCOMBINABLE = Pattern.compile("\\\\[1-9k]|#");
+
+  private final Map<String, int[]> literals;
+  private final Trie prefixes;
+  private final Trie suffixes;
+
+  /** The position of each regular expression in the list, in ascending order. */
+  private final int[] regexPositions;
+  private final Pattern[] regexes;
+
+  private final int size;
+
+  /** The matching positions of recently seen URIs. */
+  private final LoadingCache<String, int[]> recentMatches = CacheBuilder.newBuilder()
+      .maximumSize(RECENT_URIS)
+      .build(new CacheLoader<String, int[]>() {
+        @Override public int[] load(String uri) {
+          return computeMatches(uri);
+        }
+      });
+
+  /** Alternation of all regexes, or null if they could not be combined. */
+  private final Pattern combinedRegex;
+
+  /** The capturing group that wraps each regex in {@link #combinedRegex}. */
+  private final int[] regexGroups;
+
+  private UriPatternIndex(Builder builder) {
+    this.literals = Maps.newHashMap();
+    for (Map.Entry<String, List<Integer>> entry : builder.literals.entrySet()) {
+      literals.put(entry.getKey(), Ints.toArray(entry.getValue()));
+    }
+    this.prefixes = builder.prefixes;
+    this.suffixes = builder.suffixes;
+    this.regexPositions = Ints.toArray(builder.regexPositions);
+    this.regexes = builder.regexes.toArray(new Pattern[builder.regexes.size()]);
+    this.regexGroups = new int[regexes.length];
+    this.combinedRegex = combine(regexes, regexGroups);
+    this.size = builder.size;
+  }
+
+  /**
+   * Returns the position of the first pattern at or after {@code from} that matches {@code uri},
+   * or -1 if there is none. Like the pattern matchers, this ignores the URI's query string.
+   */
+  int firstMatch(String uri, int from) {
+    if (uri == null || size == 0) {
+      return -1;
+    }
+    return computeFirstMatch(withoutQuery(uri), from);
+  }
+
+  /**
+   * Returns the positions of all patterns that match {@code uri}, in ascending order. The array
+   * must not be modified. Results for recently seen URIs are remembered.
+   */
+  int[] matches(String uri) {
+    if (uri == null || size == 0) {
+      return NONE;
+    }
+    return recentMatches.getUnchecked(withoutQuery(uri));
+  }
+
+  private static String withoutQuery(String uri) {
+    int queryIndex = uri.indexOf('?');
+    return queryIndex != -1 ? uri.substring(0, queryIndex) : uri;
+  }
+
+  private int[] computeMatches(String uri) {
+    List<Integer> positions = Lists.newArrayList();
+    addAll(positions, literals.get(uri));
+
+    Trie node = prefixes;
+    addAll(positions, node.positions);
+    for (int i = 0; i < uri.length() && (node = node.children.get(uri.charAt(i))) != null; i++) {
+      addAll(positions, node.positions);
+    }
+
+    node = suffixes;
+    addAll(positions, node.positions);
+    for (int i = uri.length() - 1; i >= 0 && (node = node.children.get(uri.charAt(i))) != null;
+        i--) {
+      addAll(positions, node.positions);
+    }
+
+    // the combined regex only finds the first match, so every regex has to be tested
+    for (int i = 0; i < regexes.length; i++) {
+      if (regexes[i].matcher(uri).matches()) {
+        positions.add(regexPositions[i]);
+      }
+    }
+
+    if (positions.isEmpty()) {
+      return NONE;
+    }
+    int[] matches = Ints.toArray(positions);
+    Arrays.sort(matches);
+    return matches;
+  }
+
+  private static void addAll(List<Integer> positions, int[] toAdd) {
+    if (toAdd != null) {
+      positions.addAll(Ints.asList(toAdd));
+    }
+  }
+
+  private int computeFirstMatch(String uri, int from) {
+    int first = first(literals.get(uri), from, -1);
+
+    Trie node = prefixes;
+    first = first(node.positions, from, first);
+    for (int i = 0; i < uri.length() && (node = node.children.get(uri.charAt(i))) != null; i++) {
+      first = first(node.positions, from, first);
+    }
+
+    node = suffixes;
+    first = first(node.positions, from, first);
+    for (int i = uri.length() - 1; i >= 0 && (node = node.children.get(uri.charAt(i))) != null;
+        i--) {
+      first = first(node.positions, from, first);
+    }
+
+    int regexMatch = firstRegexMatch(uri, from, first == -1 ? Integer.MAX_VALUE : first);
+    return regexMatch != -1 ? regexMatch : first;
+  }
+
+  /** Returns the first regex position in {@code [from, to)} that matches {@code uri}, or -1. */
+  private int firstRegexMatch(String uri, int from, int to) {
+    if (regexPositions.length == 0 || regexPositions[0] >= to) {
+      return -1;
+    }
+
+    if (combinedRegex != null) {
+      Matcher matcher = combinedRegex.matcher(uri);
+      if (!matcher.matches()) {
+        return -1;
+      }
+      for (int i = 0; i < regexGroups.length; i++) {
+        if (matcher.start(regexGroups[i]) != -1) {
+          if (regexPositions[i] >= from) {
+            return regexPositions[i] < to ? regexPositions[i] : -1;
+          }
+          break;
+        }
+      }
+      // the first match is before from, so test the later regexes individually
+    }
+
+    for (int i = 0; i < regexPositions.length && regexPositions[i] < to; i++) {
+      if (regexPositions[i] >= from && regexes[i].matcher(uri).matches()) {
+        return regexPositions[i];
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the first of {@code positions} from {@code from} on, if it is before {@code first}. */
+  private static int first(int[] positions, int from, int first) {
+    if (positions != null) {
+      for (int position : positions) {
+        if (position >= from) {
+          return first == -1 || position < first ? position : first;
+        }
+      }
+    }
+    return first;
+  }
+
+  /**
+   * Returns the alternation of {@code regexes}, each wrapped in a capturing group whose number is
+   * stored in {@code groups}. Returns null if they cannot be combined without changing what they
+   * match.
+   */
+  private static Pattern combine(Pattern[] regexes, int[] groups) {
+    if (regexes.length < 2) {
+      return null;
+    }
+    StringBuilder combined = new StringBuilder();
+    int group = 1;
+    for (int i = 0; i < regexes.length; i++) {
+      String regex = regexes[i].pattern();
+      if (UNCOMBINABLE.matcher(regex).find()) {
+        return null;
+      }
+      combined.append(i == 0 ? "(" : "|(").append(regex).append(")");
+      groups[i] = group;
+      group += 1 + regexes[i].matcher("").groupCount();
+    }
+
+    try {
+      Pattern pattern = Pattern.compile(combined.toString());
+      if (pattern.matcher("").groupCount() == group - 1) {
+        return pattern;
+      }
+    } catch (PatternSyntaxException e) {
+      logger.fine("Regex patterns will be tested one at a time: " + e.getMessage());
+    }
+    return null;
+  }
+
+  /** A node in a trie of pattern prefixes or reversed suffixes. */
+  private static final class Trie {
+    final Map<Character, Trie> children = Maps.newHashMap();
+    int[] positions = NONE;
+
+    void add(CharSequence key, int position, boolean reversed) {
+      Trie node = this;
+      for (int i = 0; i < key.length(); i++) {
+        char c = key.charAt(reversed ? key.length() - 1 - i : i);
+        Trie child = node.children.get(c);
+        if (child == null) {
+          child = new Trie();
+          node.children.put(c, child);
+        }
+        node = child;
+      }
+      node.positions = Ints.concat(node.positions, new int[] { position });
+    }
+  }
+
+  /** Collects patterns in order. Each pattern's position is the number of patterns before it. */
+  static final class Builder {
+    private final Map<String, List<Integer>> literals = Maps.newHashMap();
+    private final Trie prefixes = new Trie();
+    private final Trie suffixes = new Trie();
+    private final List<Integer> regexPositions = Lists.newArrayList();
+    private final List<Pattern> regexes = Lists.newArrayList();
+    private int size;
+
+    /** Adds {@code pattern}, interpreted as it is by {@link UriPatternType#get}. */
+    Builder add(UriPatternType patternType, String pattern) {
+      int position = size++;
+      if (patternType == UriPatternType.REGEX) {
+        regexPositions.add(position);
+        regexes.add(Pattern.compile(pattern));
+      } else if (pattern.startsWith("*")) {
+        suffixes.add(pattern.substring(1), position, true);
+      } else if (pattern.endsWith("*")) {
+        prefixes.add(pattern.substring(0, pattern.length() - 1), position, false);
+      } else {
+        List<Integer> positions = literals.get(pattern);
+        if (positions == null) {
+          positions = Lists.newArrayList();
+          literals.put(pattern, positions);
+        }
+        positions.add(position);
+      }
+      return this;
+    }
+
+    UriPatternIndex build() {
+      return new UriPatternIndex(this);
+    }
+  }
+}
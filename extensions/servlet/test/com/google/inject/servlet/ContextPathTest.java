@@ -16,6 +16,7 @@
 
 package com.google.inject.servlet;
 
+import static com.google.inject.servlet.ServletTestUtils.expectNewScopedInstances;
 import static org.easymock.EasyMock.createControl;
 import static org.easymock.EasyMock.expect;
 
@@ -122,6 +123,7 @@ public class ContextPathTest extends TestCase {
     expect(req.getServletPath()).andReturn("/bar/foo").anyTimes();
     expect(req.getContextPath()).andReturn("").anyTimes();
 
+    expectNewScopedInstances(req);
     testControl.replay();
 
     guiceFilter.doFilter(req, res, testFilterChain);
@@ -246,6 +248,7 @@ public class ContextPathTest extends TestCase {
     expect(req.getServletPath()).andReturn(servletPath).anyTimes();
     expect(req.getContextPath()).andReturn(contextPath).anyTimes();
 
+    expectNewScopedInstances(req);
     testControl.replay();
 
     guiceFilter.doFilter(req, res, testFilterChain);
@@ -17,6 +17,7 @@
 package com.google.inject.servlet;
 
 import javax.servlet.http.Cookie;
+import static com.google.inject.servlet.ServletTestUtils.expectNewScopedInstances;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -134,6 +135,7 @@ public class ContinuingRequestIntegrationTest extends TestCase {
     FilterChain filterChain = createMock(FilterChain.class);
     expect(request.getParameter(PARAM_NAME)).andReturn(PARAM_VALUE);
 
+    expectNewScopedInstances(request);
     replay(request, filterConfig, filterChain);
 
     guiceFilter.init(filterConfig);
@@ -176,6 +178,7 @@ public class ContinuingRequestIntegrationTest extends TestCase {
     expect(request.getCookies()).andReturn(new Cookie[0]);
     FilterChain filterChain = createMock(FilterChain.class);
 
+    expectNewScopedInstances(request);
     replay(request, filterConfig, filterChain);
 
     guiceFilter.init(filterConfig);
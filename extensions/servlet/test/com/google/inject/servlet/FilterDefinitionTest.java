@@ -125,7 +125,7 @@ public class FilterDefinitionTest extends TestCase {
     assertSame(mockFilter, matchingFilter);
 
     final boolean proceed[] = new boolean[1];
-    matchingFilter.doFilter(request, null, new FilterChainInvocation(null, null, null) {
+    matchingFilter.doFilter(request, null, new FilterChainInvocation(null, null, null, null) {
       @Override
       public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
         proceed[0] = true;
@@ -187,7 +187,7 @@ public class FilterDefinitionTest extends TestCase {
     assertSame(mockFilter, matchingFilter);
 
     final boolean proceed[] = new boolean[1];
-    matchingFilter.doFilter(request, null, new FilterChainInvocation(null, null, null) {
+    matchingFilter.doFilter(request, null, new FilterChainInvocation(null, null, null, null) {
       @Override
       public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
         proceed[0] = true;
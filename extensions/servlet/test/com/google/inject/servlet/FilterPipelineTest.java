@@ -1,5 +1,6 @@
 package com.google.inject.servlet;
 
+import static com.google.inject.servlet.ServletTestUtils.expectNewScopedInstances;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
@@ -84,6 +85,7 @@ public class FilterPipelineTest extends TestCase {
     expectLastCall().once();
 
     //run mock script ***
+    expectNewScopedInstances(request);
     replay(filterConfig, servletContext, request, proceedingFilterChain);
 
     final GuiceFilter webFilter = new GuiceFilter();
@@ -1,5 +1,6 @@
 package com.google.inject.servlet;
 
+import static com.google.inject.servlet.ServletTestUtils.expectNewScopedInstances;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
@@ -100,6 +101,7 @@ public class InjectedFilterPipelineTest extends TestCase {
     expectLastCall().once();
 
     //run mock script ***
+    expectNewScopedInstances(request);
     replay(filterConfig, servletContext, request, proceedingFilterChain);
 
     GuiceFilter webFilter = injector1.getInstance(GuiceFilter.class);
@@ -139,6 +141,7 @@ public class InjectedFilterPipelineTest extends TestCase {
     expectLastCall().once();
 
     // Never fire on this pipeline
+    expectNewScopedInstances(request);
     replay(filterConfig, servletContext, request, proceedingFilterChain2, proceedingFilterChain);
 
     webFilter = injector2.getInstance(GuiceFilter.class);
@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletRequest;
+import static com.google.inject.servlet.ServletTestUtils.newFakeHttpServletResponse;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provides;
+import com.google.inject.ProvisionException;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+public class ScopedExecutorsTest extends TestCase {
+  private static final int TASKS = 8;
+  private static final Key<List<Counted>> FAN_OUT = new Key<List<Counted>>() {};
+
+  private Injector injector;
+  private ExecutorService executor;
+
+  @Override protected void setUp() {
+    GuiceFilter.reset();
+    Counted.instances.set(0);
+    injector = Guice.createInjector(new ServletModule() {
+      @Override protected void configureServlets() {
+        bind(Counted.class).in(RequestScoped.class);
+      }
+    });
+    executor = ScopedExecutors.requestScoped(Executors.newFixedThreadPool(TASKS));
+  }
+
+  @Override protected void tearDown() throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  public void testTasksShareTheHttpRequestScope() throws Exception {
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    new GuiceFilter().doFilter(request, newFakeHttpServletResponse(), new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        Counted counted = injector.getInstance(Counted.class);
+        for (Future<Counted> future : submitAll(new Callable<Counted>() {
+          public Counted call() {
+            assertSame(request, injector.getInstance(HttpServletRequest.class));
+            return injector.getInstance(Counted.class);
+          }
+        })) {
+          assertSame(counted, getUnchecked(future));
+        }
+      }
+    });
+    assertEquals(1, Counted.instances.get());
+  }
+
+  public void testTasksCreateOneInstancePerRequest() throws Exception {
+    final CountDownLatch started = new CountDownLatch(TASKS);
+    final List<Future<Counted>> futures = Lists.newArrayList();
+    new GuiceFilter().doFilter(newFakeHttpServletRequest(), newFakeHttpServletResponse(),
+        new FilterChain() {
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            futures.addAll(submitAll(new Callable<Counted>() {
+              public Counted call() throws InterruptedException {
+                started.countDown();
+                started.await(5, TimeUnit.SECONDS);
+                return injector.getInstance(Counted.class);
+              }
+            }));
+            for (Future<Counted> future : futures) {
+              assertSame(getUnchecked(futures.get(0)), getUnchecked(future));
+            }
+          }
+        });
+    assertEquals(1, Counted.instances.get());
+  }
+
+  public void testTasksShareTheNonHttpRequestScope() throws Exception {
+    final Counted seeded = new Counted();
+    List<Future<Counted>> futures = ServletScopes.scopeRequest(
+        new Callable<List<Future<Counted>>>() {
+          public List<Future<Counted>> call() throws Exception {
+            List<Future<Counted>> futures = submitAll(new Callable<Counted>() {
+              public Counted call() {
+                return injector.getInstance(Counted.class);
+              }
+            });
+            for (Future<Counted> future : futures) {
+              future.get();
+            }
+            return futures;
+          }
+        }, ImmutableMap.<Key<?>, Object>of(Key.get(Counted.class), seeded)).call();
+    for (Future<Counted> future : futures) {
+      assertSame(seeded, future.get());
+    }
+  }
+
+  public void testRequestScopedProvidersCanWaitForTasksInTheHttpRequestScope()
+      throws Exception {
+    final Injector injector = newFanOutInjector();
+    new GuiceFilter().doFilter(newFakeHttpServletRequest(), newFakeHttpServletResponse(),
+        new FilterChain() {
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            assertFannedOut(injector.getInstance(FAN_OUT));
+          }
+        });
+    assertEquals(1, Counted.instances.get());
+  }
+
+  public void testRequestScopedProvidersCanWaitForTasksInTheNonHttpRequestScope()
+      throws Exception {
+    final Injector injector = newFanOutInjector();
+    ServletScopes.scopeRequest(new Callable<Void>() {
+      public Void call() {
+        assertFannedOut(injector.getInstance(FAN_OUT));
+        return null;
+      }
+    }, ImmutableMap.<Key<?>, Object>of()).call();
+    assertEquals(1, Counted.instances.get());
+  }
+
+  public void testTasksSubmittedOutsideOfARequestAreUnscoped() throws Exception {
+    Future<Counted> future = executor.submit(new Callable<Counted>() {
+      public Counted call() {
+        return injector.getInstance(Counted.class);
+      }
+    });
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertTrue(expected.getCause() instanceof ProvisionException);
+      assertTrue(expected.getCause().getCause() instanceof OutOfScopeException);
+    }
+  }
+
+  /**
+   * Returns an injector whose request-scoped {@link #FAN_OUT} provider gets a
+   * request-scoped {@link Counted} from each of several tasks, and waits for
+   * them. Creating one request-scoped key must not stop tasks from creating
+   * another.
+   */
+  private Injector newFanOutInjector() {
+    return Guice.createInjector(new ServletModule() {
+      @Override protected void configureServlets() {
+        bind(Counted.class).in(RequestScoped.class);
+      }
+
+      @Provides @RequestScoped List<Counted> provideFanOut(final Injector injector)
+          throws Exception {
+        List<Counted> counteds = Lists.newArrayList();
+        for (Future<Counted> future : submitAll(new Callable<Counted>() {
+          public Counted call() {
+            return injector.getInstance(Counted.class);
+          }
+        })) {
+          counteds.add(future.get(5, TimeUnit.SECONDS));
+        }
+        return counteds;
+      }
+    });
+  }
+
+  private static void assertFannedOut(List<Counted> counteds) {
+    assertEquals(TASKS, counteds.size());
+    for (Counted counted : counteds) {
+      assertSame(counteds.get(0), counted);
+    }
+  }
+
+  private List<Future<Counted>> submitAll(Callable<Counted> task) {
+    List<Future<Counted>> futures = Lists.newArrayList();
+    for (int i = 0; i < TASKS; i++) {
+      futures.add(executor.submit(task));
+    }
+    return futures;
+  }
+
+  private static Counted getUnchecked(Future<Counted> future) {
+    try {
+      return future.get();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static class Counted {
+    static final AtomicInteger instances = new AtomicInteger();
+
+    Counted() {
+      instances.incrementAndGet();
+    }
+  }
+}
@@ -16,7 +16,6 @@
 
 package com.google.inject.servlet;
 
-import static com.google.inject.servlet.ManagedServletPipeline.REQUEST_DISPATCHER_REQUEST;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
@@ -107,6 +106,55 @@ public class ServletDefinitionPathsTest extends TestCase {
 
   }
 
+  public final void testPathsAreComputedOncePerDispatch() throws IOException, ServletException {
+    Injector injector = createMock(Injector.class);
+    Binding binding = createMock(Binding.class);
+    HttpServletRequest request = createMock(HttpServletRequest.class);
+    HttpServletResponse response = createMock(HttpServletResponse.class);
+
+    expect(binding.acceptScopingVisitor((BindingScopingVisitor) anyObject()))
+        .andReturn(true);
+    expect(injector.getBinding(Key.get(HttpServlet.class)))
+        .andReturn(binding);
+
+    final boolean[] run = new boolean[1];
+    expect(injector.getInstance(Key.get(HttpServlet.class)))
+        .andReturn(new HttpServlet() {
+
+          @Override
+          protected void service(HttpServletRequest servletRequest,
+              HttpServletResponse httpServletResponse) throws ServletException, IOException {
+
+            for (int i = 0; i < 10; i++) {
+              assertEquals("/api", servletRequest.getServletPath());
+              assertEquals("/users/42", servletRequest.getPathInfo());
+            }
+            run[0] = true;
+          }
+        });
+
+    // Each is asked for once, no matter how often the servlet asks for its paths.
+    expect(request.getServletPath())
+        .andReturn("/api");
+    expect(request.getRequestURI())
+        .andReturn("/app/api/users/42");
+    expect(request.getContextPath())
+        .andReturn("/app");
+
+    replay(injector, binding, request);
+
+    ServletDefinition servletDefinition = new ServletDefinition("/api/*",
+        Key.get(HttpServlet.class), UriPatternType.get(UriPatternType.SERVLET, "/api/*"),
+        new HashMap<String, String>(), null);
+
+    servletDefinition.init(null, injector, Sets.<HttpServlet>newIdentityHashSet());
+    servletDefinition.doService(request, response);
+
+    assertTrue("Servlet did not run!", run[0]);
+
+    verify(injector, binding, request);
+  }
+
   // Data-driven test.
   public final void testPathInfoWithServletStyleMatching() throws IOException, ServletException {
     pathInfoWithServletStyleMatching("/path/index.html", "/path", "/*", "/index.html", "");
@@ -191,8 +239,6 @@ public class ServletDefinitionPathsTest extends TestCase {
     expect(request.getContextPath())
         .andReturn(contextPath);
 
-    expect(request.getAttribute(REQUEST_DISPATCHER_REQUEST)).andReturn(null);
-
     replay(injector, binding, request);
 
     ServletDefinition servletDefinition = new ServletDefinition(mapping, Key.get(HttpServlet.class),
@@ -291,8 +337,6 @@ public class ServletDefinitionPathsTest extends TestCase {
     expect(request.getContextPath())
         .andReturn(contextPath);
 
-    expect(request.getAttribute(REQUEST_DISPATCHER_REQUEST)).andReturn(null);
-
     replay(injector, binding, request);
 
     ServletDefinition servletDefinition = new ServletDefinition(mapping, Key.get(HttpServlet.class),
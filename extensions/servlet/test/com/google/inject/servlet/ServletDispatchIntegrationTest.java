@@ -17,6 +17,7 @@
 package com.google.inject.servlet;
 
 import static com.google.inject.servlet.ManagedServletPipeline.REQUEST_DISPATCHER_REQUEST;
+import static com.google.inject.servlet.ServletTestUtils.expectNewScopedInstances;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
@@ -256,6 +257,7 @@ public class ServletDispatchIntegrationTest extends TestCase {
     expect(responseMock.isCommitted()).andReturn(false);
     responseMock.resetBuffer();
 
+    expectNewScopedInstances(requestMock);
     replay(requestMock, responseMock);
 
     new GuiceFilter()
@@ -50,7 +50,14 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -332,6 +339,133 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testRequestObjectsAreScopedToTheRequest()
+      throws CreationException, IOException, ServletException {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    final GuiceFilter filter = new GuiceFilter();
+    final InRequest[] inRequest = new InRequest[2];
+
+    filter.doFilter(request, null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse)
+          throws IOException, ServletException {
+        inRequest[0] = injector.getInstance(InRequest.class);
+
+        // A nested dispatch of the same request sees the same instance.
+        filter.doFilter(servletRequest, servletResponse, new FilterChain() {
+          public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+            assertSame(inRequest[0], injector.getInstance(InRequest.class));
+          }
+        });
+      }
+    });
+    assertNull(request.getAttribute(Key.get(InRequest.class).toString()));
+
+    filter.doFilter(newFakeHttpServletRequest(), null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        inRequest[1] = injector.getInstance(InRequest.class);
+      }
+    });
+    assertNotNull(inRequest[1]);
+    assertNotSame(inRequest[0], inRequest[1]);
+  }
+
+  public void testRequestObjectsAreSharedByLaterPassesOfTheRequest()
+      throws CreationException, IOException, ServletException {
+    final Injector injector = createInjector();
+    final HttpServletRequest request = newFakeHttpServletRequest();
+    GuiceFilter filter = new GuiceFilter();
+    final InRequest[] inRequest = new InRequest[2];
+
+    filter.doFilter(request, null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        inRequest[0] = injector.getInstance(InRequest.class);
+      }
+    });
+
+    // as the container would dispatch the request to an error page, after the first pass
+    filter.doFilter(new HttpServletRequestWrapper(request), null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        inRequest[1] = injector.getInstance(InRequest.class);
+      }
+    });
+    assertNotNull(inRequest[0]);
+    assertSame(inRequest[0], inRequest[1]);
+  }
+
+  public void testRequestObjectsAreSharedByAsynchronousDispatches() throws Exception {
+    final Injector injector = createInjector();
+    final AsyncRequest request = new AsyncRequest(newFakeHttpServletRequest());
+    final GuiceFilter filter = new GuiceFilter();
+    final InRequest[] inRequest = new InRequest[2];
+
+    filter.doFilter(request, null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        inRequest[0] = injector.getInstance(InRequest.class);
+        request.asyncStarted = true;
+      }
+    });
+
+    // the container resumes the request on another thread
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(new Callable<Void>() {
+        public Void call() throws Exception {
+          assertTrue(request.isAsyncStarted());
+          filter.doFilter(request, null, new FilterChain() {
+            public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+              inRequest[1] = injector.getInstance(InRequest.class);
+            }
+          });
+          return null;
+        }
+      }).get();
+    } finally {
+      executor.shutdown();
+    }
+    assertNotNull(inRequest[0]);
+    assertSame(inRequest[0], inRequest[1]);
+  }
+
+  /** A request with the Servlet 3.0 method that tells whether it was suspended. */
+  static class AsyncRequest extends HttpServletRequestWrapper {
+    volatile boolean asyncStarted;
+
+    AsyncRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    public boolean isAsyncStarted() {
+      return asyncStarted;
+    }
+  }
+
+  public void testRequestSlotsDoNotDependOnTheNumberOfInjectors()
+      throws CreationException, IOException, ServletException {
+    for (int i = 0; i < 100; i++) {
+      createInjector();
+    }
+    final Injector injector = createInjector();
+    GuiceFilter filter = new GuiceFilter();
+    final boolean[] invoked = new boolean[1];
+
+    filter.doFilter(newFakeHttpServletRequest(), null, new FilterChain() {
+      public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) {
+        invoked[0] = true;
+        InRequest inRequest = injector.getInstance(InRequest.class);
+        assertNull(injector.getInstance(IN_REQUEST_NULL_KEY));
+
+        // slots are numbered by the filter, as its requests first look up each key
+        GuiceFilter.ScopedInstances instances = GuiceFilter.localContext.get().scopedInstances;
+        assertEquals(0, instances.slots.get(Key.get(InRequest.class)).index);
+        assertEquals(1, instances.slots.get(IN_REQUEST_NULL_KEY).index);
+        assertSame(inRequest, instances.get(0));
+      }
+    });
+
+    assertTrue(invoked[0]);
+  }
+
   public void testNewSessionObject()
       throws CreationException, IOException, ServletException {
     final Injector injector = createInjector();
@@ -378,6 +512,61 @@ public class ServletTest extends TestCase {
     assertTrue(invoked[0]);
   }
 
+  public void testSessionObjectsOfDifferentKeysAreCreatedConcurrently() throws Exception {
+    final CountDownLatch bothCreating = new CountDownLatch(2);
+    final Provider<String> awaitingProvider = new Provider<String>() {
+      public String get() {
+        bothCreating.countDown();
+        try {
+          return bothCreating.await(5, TimeUnit.SECONDS) ? "created" : "timed out";
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    final Injector injector = createInjector(new AbstractModule() {
+      @Override protected void configure() {
+        bind(Key.get(String.class, Names.named("a"))).toProvider(awaitingProvider)
+            .in(SessionScoped.class);
+        bind(Key.get(String.class, Names.named("b"))).toProvider(awaitingProvider)
+            .in(SessionScoped.class);
+      }
+    });
+    final HttpSession session = newFakeHttpServletRequest().getSession();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<String>> futures = Lists.newArrayList();
+      for (final String name : new String[] {"a", "b"}) {
+        futures.add(executor.submit(new Callable<String>() {
+          public String call() throws Exception {
+            final String[] result = new String[1];
+            HttpServletRequest request = new HttpServletRequestWrapper(
+                newFakeHttpServletRequest()) {
+              @Override public HttpSession getSession() {
+                return session;
+              }
+            };
+            new GuiceFilter().doFilter(request, null, new FilterChain() {
+              public void doFilter(ServletRequest req, ServletResponse resp) {
+                result[0] = injector.getInstance(Key.get(String.class, Names.named(name)));
+              }
+            });
+            return result[0];
+          }
+        }));
+      }
+      for (Future<String> future : futures) {
+        assertEquals("created", future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals("created",
+        session.getAttribute(Key.get(String.class, Names.named("a")).toString()));
+  }
+
   public void testHttpSessionIsSerializable() throws Exception {
     final Injector injector = createInjector();
     final HttpServletRequest request = newFakeHttpServletRequest();
@@ -2,6 +2,10 @@
 
 package com.google.inject.servlet;
 
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
@@ -9,6 +13,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
 import java.util.Map;
 
 import javax.servlet.FilterChain;
@@ -86,6 +91,16 @@ public class ServletTestUtils {
     };
   }
   
+  /**
+   * Expects {@link GuiceFilter} to look for the request-scoped instances of
+   * {@code request}, a mock, and to store new ones.
+   */
+  public static void expectNewScopedInstances(HttpServletRequest request) {
+    expect(request.getAttribute(GuiceFilter.SCOPED_INSTANCES_ATTRIBUTE)).andReturn(null);
+    request.setAttribute(eq(GuiceFilter.SCOPED_INSTANCES_ATTRIBUTE),
+        isA(GuiceFilter.ScopedInstances.class));
+  }
+
   /**
    * Returns a fake, HttpServletResponse which throws an exception if any of its
    * methods are called.
@@ -97,7 +112,8 @@ public class ServletTestUtils {
   }  
   
   private static class FakeHttpSessionHandler implements InvocationHandler, Serializable {
-    final Map<String, Object> attributes = Maps.newHashMap();
+    final Map<String, Object> attributes =
+        Collections.synchronizedMap(Maps.<String, Object>newHashMap());
 
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
       String name = method.getName();
@@ -113,7 +129,8 @@ public class ServletTestUtils {
   }
 
   /**
-   * Returns a fake, serializable HttpSession which stores attributes in a HashMap.
+   * Returns a fake, serializable and thread-safe HttpSession which stores
+   * attributes in a HashMap.
    */
   public static HttpSession newFakeHttpSession() {
     return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(),
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.inject.servlet;
+
+import static com.google.inject.servlet.UriPatternType.REGEX;
+import static com.google.inject.servlet.UriPatternType.SERVLET;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Checks that {@link UriPatternIndex} finds the same patterns as testing each
+ * {@link UriPatternMatcher} in order.
+ */
+public class UriPatternIndexTest extends TestCase {
+
+  private static final List<String> URIS = ImmutableList.of(
+      "/", "/index.html", "/index.html?x=1", "/foo", "/foo/", "/foo/bar", "/foo/bar.html",
+      "/foo/bar.jsp?a=b", "/FOO/bar", "/baz/123", "/baz/abc", "/aa", "/abab", "/x#y", "", "/?");
+
+  public void testServletPatterns() {
+    assertSameMatches(
+        SERVLET, "/foo/bar",
+        SERVLET, "/foo/*",
+        SERVLET, "*.html",
+        SERVLET, "/foo/bar",
+        SERVLET, "/*",
+        SERVLET, "*",
+        SERVLET, "/",
+        SERVLET, "*.jsp");
+  }
+
+  public void testRegexPatterns() {
+    assertSameMatches(
+        REGEX, "/baz/([0-9]+)",
+        REGEX, "(?i)/foo/(.*)",
+        REGEX, "/foo/(bar)(\\.html)?",
+        REGEX, "/(a)\\1",
+        REGEX, "/(ab)+",
+        REGEX, ".*");
+  }
+
+  public void testRegexPatternsThatCannotBeCombined() {
+    assertSameMatches(
+        REGEX, "(?x) /foo/ .* # a comment",
+        REGEX, "/(?<first>a)\\k<first>",
+        REGEX, "/.*");
+  }
+
+  public void testMixedPatterns() {
+    assertSameMatches(
+        REGEX, "/baz/([a-z]+)",
+        SERVLET, "/foo/*",
+        REGEX, "(?i)/foo/bar",
+        SERVLET, "*.html",
+        REGEX, "/(ab)+",
+        SERVLET, "/aa",
+        REGEX, "/.*",
+        SERVLET, "/*");
+  }
+
+  public void testEmptyIndex() {
+    UriPatternIndex index = new UriPatternIndex.Builder().build();
+    assertEquals(-1, index.firstMatch("/foo", 0));
+    assertEquals(-1, index.firstMatch(null, 0));
+    assertEquals(0, index.matches("/foo").length);
+  }
+
+  /** Compares every match of every URI, as a servlet or filter pipeline would look them up. */
+  private void assertSameMatches(Object... typesAndPatterns) {
+    UriPatternIndex.Builder builder = new UriPatternIndex.Builder();
+    List<UriPatternMatcher> matchers = Lists.newArrayList();
+    for (int i = 0; i < typesAndPatterns.length; i += 2) {
+      UriPatternType type = (UriPatternType) typesAndPatterns[i];
+      String pattern = (String) typesAndPatterns[i + 1];
+      builder.add(type, pattern);
+      matchers.add(UriPatternType.get(type, pattern));
+    }
+    UriPatternIndex index = builder.build();
+
+    for (String uri : URIS) {
+      List<Integer> expected = Lists.newArrayList();
+      for (int i = 0; i < matchers.size(); i++) {
+        if (matchers.get(i).matches(uri)) {
+          expected.add(i);
+        }
+      }
+
+      List<Integer> actual = Lists.newArrayList();
+      for (int i = index.firstMatch(uri, 0); i != -1; i = index.firstMatch(uri, i + 1)) {
+        actual.add(i);
+      }
+      assertEquals(uri, expected, actual);
+      // as a filter chain looks them up, all at once
+      assertEquals(uri, expected, Ints.asList(index.matches(uri)));
+    }
+  }
+}